@@ -0,0 +1,73 @@
+package rkinland;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.Enumeration;
+import java.util.Locale;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Training run for the AppCDS archive of the runnable jar (see pom.xml, profile "cds")
+ * Started with -XX:ArchiveClassesAtExit during the build; it loads the classes the GUI needs
+ * up to the language selection screen, so the next start maps them from the archive instead
+ * of loading and verifying them again. No window is opened, so it also runs on build servers.
+ */
+public final class CdsTraining {
+    
+    // Packages of the jar whose classes are loaded: application and the JavaFX toolkit
+    private static final String[] PREFIXES = {
+        "rkinland/", "javafx/", "com/sun/javafx/", "com/sun/glass/", "com/sun/prism/",
+        "com/sun/scenario/", "com/sun/marlin/", "com/sun/openpisces/"
+    };
+    
+    private CdsTraining() {
+    }
+    
+    public static void main(String[] args) throws IOException, URISyntaxException {
+        long start = System.nanoTime();
+        
+        // What the GUI builds before the first question: messages and the dialog graph
+        for (Locale locale : new Locale[] {Locale.GERMAN, Locale.ENGLISH}) {
+            new DialogEngine(DialogGraph.standard(), Messages.forLocale(locale), message -> { }).start();
+        }
+        
+        ClassLoader loader = CdsTraining.class.getClassLoader();
+        File jar = new File(CdsTraining.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        int loaded = 0;
+        
+        try (JarFile jarFile = new JarFile(jar)) {
+            Enumeration<JarEntry> entries = jarFile.entries();
+            while (entries.hasMoreElements()) {
+                String name = entries.nextElement().getName();
+                if (!name.endsWith(".class") || !isTrained(name)) {
+                    continue;
+                }
+                try {
+                    // Loaded and linked, but not initialized: static initializers may need a display
+                    Class.forName(name.substring(0, name.length() - 6).replace('/', '.'), false, loader);
+                    loaded++;
+                } catch (ClassNotFoundException | LinkageError e) {
+                    // Classes for other platforms or optional modules
+                }
+            }
+        }
+        
+        System.out.println(String.format(Locale.ROOT, "CDS training: %d classes in %.0f ms",
+            loaded, (System.nanoTime() - start) / 1e6));
+    }
+    
+    private static boolean isTrained(String entryName) {
+        // Classes of the default package (TravelExpenseChatbotGUI, Launcher)
+        if (entryName.indexOf('/') < 0) {
+            return true;
+        }
+        for (String prefix : PREFIXES) {
+            if (entryName.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,518 @@
+package rkinland;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * HTTP chat endpoint: many concurrent conversations in one JVM, one DialogSession per user
+ * All sessions share the dialog graph (with its validators), the localized messages and the
+ * parsed PDF template; each session can switch between them mid-conversation. Requests run on virtual threads where the JVM has them (Java 21+),
+ * otherwise on a cached thread pool.
+ *
+ * POST   /session?lang=de|en   start a conversation, returns its id and the welcome messages (503 at --max-sessions)
+ * POST   /session/{id}         send one answer (request body, UTF-8, not blank), returns the bot messages
+ * POST   /session/{id}/lang?lang=de|en   continue in another language, returns the open question again
+ * GET    /session/{id}/pdf     the filled PDF, once the final question was answered with yes
+ * DELETE /session/{id}         end the conversation
+ * GET    /metrics              turn and PDF latencies as text (see Metrics)
+ */
+public final class ChatServer {
+    
+    /** Open conversations at most if --max-sessions is not given */
+    public static final int DEFAULT_MAX_SESSIONS = 10000;
+    
+    private static final String USAGE =
+        "Usage: --server [options]\n"
+        + "  --port <n>          HTTP port (default: 8080)\n"
+        + "  --template <file>   PDF template (default: rkinland.pdf)\n"
+        + "  --idle <minutes>    sessions without requests are dropped after this time (default: 30)\n"
+        + "  --max-sessions <n>  open conversations at most, further ones are refused with 503 (default: " + DEFAULT_MAX_SESSIONS + ")";
+    
+    private static final String SESSION_PATH = "/session";
+    private static final String METRICS_PATH = "/metrics";
+    
+    private static final String NODELAY_PROPERTY = "sun.net.httpserver.nodelay";
+    
+    // Answers are short; anything longer is rejected before it is read into memory
+    private static final int MAX_ANSWER_BYTES = 4096;
+    
+    // Buffers for PDF downloads: kept for this many parallel downloads, a filled form is about 1.5 MB
+    private static final int POOLED_PDF_BUFFERS = 8;
+    private static final int PDF_BUFFER_SIZE = 2 * 1024 * 1024;
+    private static final int MAX_RETAINED_PDF_BUFFER_SIZE = 4 * 1024 * 1024;
+    
+    private final DialogGraph graph = DialogGraph.standard();
+    private final Map<String, Messages> messagesByLanguage = new HashMap<>();
+    private final PdfFormFiller filler;
+    private final PdfBufferPool pdfBuffers = new PdfBufferPool(POOLED_PDF_BUFFERS, PDF_BUFFER_SIZE, MAX_RETAINED_PDF_BUFFER_SIZE);
+    private final OutputPattern outputPattern = OutputPattern.configured(OutputPattern.DEFAULT_PATTERN);
+    private final long idleNanos;
+    private final int maxSessions;
+    
+    private final Map<String, ChatSession> sessions = new ConcurrentHashMap<>();
+    
+    private HttpServer server;
+    private ExecutorService requestExecutor;
+    private ScheduledExecutorService sweeper;
+    
+    public ChatServer(PdfFormFiller filler, long idleTimeout, TimeUnit unit) {
+        this(filler, idleTimeout, unit, DEFAULT_MAX_SESSIONS);
+    }
+    
+    /**
+     * @param maxSessions open conversations at most; each one holds a dialog engine and its claim until it ends or idles out
+     */
+    public ChatServer(PdfFormFiller filler, long idleTimeout, TimeUnit unit, int maxSessions) {
+        if (maxSessions < 1) {
+            throw new IllegalArgumentException("--max-sessions must be at least 1");
+        }
+        this.filler = filler;
+        this.idleNanos = unit.toNanos(idleTimeout);
+        this.maxSessions = maxSessions;
+        messagesByLanguage.put("de", Messages.forLocale(Locale.GERMAN));
+        messagesByLanguage.put("en", Messages.forLocale(Locale.ENGLISH));
+    }
+    
+    /**
+     * Entry point of the server mode
+     */
+    public static void main(String[] args) {
+        int port = 8080;
+        File template = new File("rkinland.pdf");
+        long idleMinutes = 30;
+        int maxSessions = DEFAULT_MAX_SESSIONS;
+        
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--port":
+                        port = Integer.parseInt(args[++i]);
+                        break;
+                    case "--template":
+                        template = new File(args[++i]);
+                        break;
+                    case "--idle":
+                        idleMinutes = Long.parseLong(args[++i]);
+                        if (idleMinutes < 1) {
+                            throw new IllegalArgumentException("--idle must be at least 1");
+                        }
+                        break;
+                    case "--max-sessions":
+                        maxSessions = Integer.parseInt(args[++i]);
+                        if (maxSessions < 1) {
+                            throw new IllegalArgumentException("--max-sessions must be at least 1");
+                        }
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown argument: " + args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println(e instanceof ArrayIndexOutOfBoundsException ? "Missing option value" : e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        
+        try {
+            ChatServer chatServer = new ChatServer(new PdfFormFiller(PdfTemplateCache.forFile(template)), idleMinutes, TimeUnit.MINUTES, maxSessions);
+            chatServer.start(new InetSocketAddress(port));
+            Runtime.getRuntime().addShutdownHook(new Thread(chatServer::stop, "chat-server-shutdown"));
+            System.out.println("Chat server listening on port " + port);
+        } catch (IOException | IllegalArgumentException | MissingResourceException e) {
+            System.err.println("Server failed: " + e.getMessage());
+            System.exit(2);
+        }
+    }
+    
+    /**
+     * Bind the port and start serving
+     */
+    public void start(InetSocketAddress address) throws IOException {
+        // Headers and body are written separately; with Nagle's algorithm the body of every small
+        // reply waits for the client's delayed ACK (about 40 ms). Read when the first server is created.
+        if (System.getProperty(NODELAY_PROPERTY) == null) {
+            System.setProperty(NODELAY_PROPERTY, "true");
+        }
+        server = HttpServer.create(address, 0);
+        server.createContext(SESSION_PATH, this::handle);
+        server.createContext(METRICS_PATH, ChatServer::handleMetrics);
+        requestExecutor = newRequestExecutor();
+        server.setExecutor(requestExecutor);
+        
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "chat-session-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(TimeUnit.SECONDS.toNanos(1), idleNanos / 4);
+        sweeper.scheduleAtFixedRate(this::dropIdleSessions, period, period, TimeUnit.NANOSECONDS);
+        
+        server.start();
+    }
+    
+    /**
+     * Stop accepting requests and drop all sessions
+     */
+    public void stop() {
+        if (server != null) {
+            server.stop(1);
+            sweeper.shutdownNow();
+            requestExecutor.shutdown();
+            sessions.clear();
+        }
+    }
+    
+    /**
+     * Number of open conversations
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+    
+    /**
+     * One virtual thread per request if available (Java 21+), else a cached pool of platform threads
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            String[] parts = path.substring(SESSION_PATH.length()).split("/", -1);
+            // parts: [""] or ["", id] or ["", id, "pdf"] or ["", id, "lang"]
+            
+            if (!parts[0].isEmpty()) {
+                sendStatus(exchange, 404);
+            } else if (parts.length == 1 && "POST".equals(method)) {
+                createSession(exchange);
+            } else if (parts.length == 2 && "POST".equals(method)) {
+                answer(exchange, parts[1]);
+            } else if (parts.length == 2 && "DELETE".equals(method)) {
+                sendStatus(exchange, sessions.remove(parts[1]) != null ? 204 : 404);
+            } else if (parts.length == 3 && "pdf".equals(parts[2]) && "GET".equals(method)) {
+                sendPdf(exchange, parts[1]);
+            } else if (parts.length == 3 && "lang".equals(parts[2]) && "POST".equals(method)) {
+                changeLanguage(exchange, parts[1]);
+            } else {
+                sendStatus(exchange, 404);
+            }
+        } catch (Exception e) {
+            System.err.println("Request failed: " + e);
+            // Once the headers are out, a status can no longer be sent; closing the exchange ends the response
+            if (exchange.getResponseCode() == -1) {
+                sendStatus(exchange, 500);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    private static void handleMetrics(HttpExchange exchange) throws IOException {
+        try {
+            if (!METRICS_PATH.equals(exchange.getRequestURI().getPath()) || !"GET".equals(exchange.getRequestMethod())) {
+                sendStatus(exchange, 404);
+                return;
+            }
+            byte[] body = Metrics.shared().dump().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    private void createSession(HttpExchange exchange) throws IOException {
+        Messages messages = messagesByLanguage.get(queryParameter(exchange, "lang", "de"));
+        if (messages == null) {
+            sendStatus(exchange, 400);
+            return;
+        }
+        
+        ChatSession session = new ChatSession(UUID.randomUUID().toString(), graph, messages);
+        // Only creating sessions is serialized; ending them can only make room
+        synchronized (sessions) {
+            if (sessions.size() >= maxSessions) {
+                sendStatus(exchange, 503);
+                return;
+            }
+            sessions.put(session.id, session);
+        }
+        String json;
+        synchronized (session) {
+            session.engine.start();
+            json = session.takeReply();
+        }
+        sendJson(exchange, 201, json);
+    }
+    
+    private void answer(HttpExchange exchange, String id) throws IOException {
+        ChatSession session = sessions.get(id);
+        if (session == null) {
+            sendStatus(exchange, 404);
+            return;
+        }
+        
+        String answer = readAnswer(exchange);
+        if (answer == null) {
+            sendStatus(exchange, 413);
+            return;
+        }
+        // The GUI never sends an empty answer; the dialog would store it and move on
+        answer = answer.trim();
+        if (answer.isEmpty()) {
+            sendStatus(exchange, 400);
+            return;
+        }
+        
+        String json;
+        synchronized (session) {
+            session.touch();
+            session.engine.process(answer);
+            json = session.takeReply();
+        }
+        sendJson(exchange, 200, json);
+    }
+    
+    private void changeLanguage(HttpExchange exchange, String id) throws IOException {
+        ChatSession session = sessions.get(id);
+        if (session == null) {
+            sendStatus(exchange, 404);
+            return;
+        }
+        Messages messages = messagesByLanguage.get(queryParameter(exchange, "lang", ""));
+        if (messages == null) {
+            sendStatus(exchange, 400);
+            return;
+        }
+        
+        String json;
+        synchronized (session) {
+            session.touch();
+            session.engine.changeLanguage(messages);
+            json = session.takeReply();
+        }
+        sendJson(exchange, 200, json);
+    }
+    
+    private void sendPdf(HttpExchange exchange, String id) throws IOException {
+        ChatSession session = sessions.get(id);
+        if (session == null) {
+            sendStatus(exchange, 404);
+            return;
+        }
+        
+        ClaimRecord claimData;
+        synchronized (session) {
+            session.touch();
+            if (!session.engine.getSession().isExportRequested()) {
+                sendStatus(exchange, 409);
+                return;
+            }
+            // Fill outside the lock, the template is shared and the snapshot belongs to this request
+            claimData = session.engine.getSession().copyClaim();
+        }
+        
+        // Filled into a pooled buffer first, so a failure can still be answered with 500 and the length is known
+        PdfBufferPool.Buffer pdf = pdfBuffers.acquire();
+        try {
+            try {
+                filler.fill(claimData, pdf, PdfFormFiller.SILENT);
+            } catch (Exception e) {
+                System.err.println("Error creating PDF for session " + id + ": " + e.getMessage());
+                sendStatus(exchange, 500);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/pdf");
+            exchange.getResponseHeaders().set("Content-Disposition", contentDisposition(outputPattern.fileName(claimData, 1)));
+            exchange.sendResponseHeaders(200, pdf.size());
+            try (OutputStream out = exchange.getResponseBody()) {
+                pdf.writeTo(out);
+            }
+        } finally {
+            pdfBuffers.release(pdf);
+        }
+    }
+    
+    /**
+     * Attachment header with an ASCII file name and the exact name for clients that understand RFC 6266
+     */
+    private static String contentDisposition(String fileName) {
+        StringBuilder ascii = new StringBuilder(fileName.length());
+        for (int i = 0; i < fileName.length(); i++) {
+            char c = fileName.charAt(i);
+            ascii.append(c < 0x80 ? c : '_');
+        }
+        return "attachment; filename=\"" + ascii + "\"; filename*=UTF-8''" + URLEncoder.encode(fileName, StandardCharsets.UTF_8);
+    }
+    
+    private void dropIdleSessions() {
+        long now = System.nanoTime();
+        for (Iterator<ChatSession> it = sessions.values().iterator(); it.hasNext(); ) {
+            if (now - it.next().lastAccess > idleNanos) {
+                it.remove();
+            }
+        }
+    }
+    
+    /**
+     * Request body as UTF-8 text, null if it exceeds MAX_ANSWER_BYTES
+     */
+    private static String readAnswer(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream(128);
+            byte[] buffer = new byte[512];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                if (body.size() + read > MAX_ANSWER_BYTES) {
+                    return null;
+                }
+                body.write(buffer, 0, read);
+            }
+            return new String(body.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+    
+    private static String queryParameter(HttpExchange exchange, String name, String defaultValue) {
+        String query = exchange.getRequestURI().getQuery();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                if (pair.startsWith(name + "=")) {
+                    return pair.substring(name.length() + 1).toLowerCase(Locale.ROOT);
+                }
+            }
+        }
+        return defaultValue;
+    }
+    
+    private static void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+    
+    private static void sendStatus(HttpExchange exchange, int status) throws IOException {
+        // Without a body the response is finished right here; an unread request body would make
+        // the server close the keep-alive connection the client is about to reuse
+        exchange.getRequestBody().close();
+        exchange.sendResponseHeaders(status, -1);
+    }
+    
+    /**
+     * Append a JSON string literal
+     */
+    static void appendJsonString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                    break;
+            }
+        }
+        json.append('"');
+    }
+    
+    /**
+     * One conversation: its engine and the bot messages of the current request
+     * Access is serialized by synchronizing on the ChatSession.
+     */
+    private static final class ChatSession implements DialogEngine.Listener {
+        final String id;
+        final DialogEngine engine;
+        private final List<String> reply = new ArrayList<>();
+        volatile long lastAccess = System.nanoTime();
+        
+        ChatSession(String id, DialogGraph graph, Messages messages) {
+            this.id = id;
+            this.engine = new DialogEngine(graph, messages, new DialogSession(), this);
+        }
+        
+        @Override
+        public void botMessage(String message) {
+            reply.add(message);
+        }
+        
+        void touch() {
+            lastAccess = System.nanoTime();
+        }
+        
+        /**
+         * Response of the current request as JSON; clears the collected messages
+         */
+        String takeReply() {
+            StringBuilder json = new StringBuilder(256);
+            json.append("{\"id\":");
+            appendJsonString(json, id);
+            json.append(",\"state\":\"").append(engine.getCurrentState()).append('"');
+            json.append(",\"lang\":\"").append(engine.getMessages().getLocale().getLanguage()).append('"');
+            json.append(",\"pdf\":").append(engine.getSession().isExportRequested());
+            json.append(",\"messages\":[");
+            for (int i = 0; i < reply.size(); i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                appendJsonString(json, reply.get(i));
+            }
+            json.append("]}");
+            reply.clear();
+            return json.toString();
+        }
+    }
+}
@@ -0,0 +1,545 @@
+package rkinland;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Replays recorded conversations through the dialog engine without GUI
+ * A script (*.script) holds the answers of one conversation and the expected result:
+ *
+ *   # comment
+ *   lang de                       language of the bot messages (de or en, default de);
+ *                                 after the first answer: the user switches the language there
+ *   > Mustermann                  one answer per line, as typed into the chat
+ *   state DONE                    expected final state (default DONE)
+ *   field nachname=Mustermann     expected form data; with field lines the form data has to match exactly
+ *
+ * Every script is replayed --repeat times on --threads workers, in-process or against a running
+ * chat server (--url, only the final state is checked there). The per-turn latencies go into a
+ * LatencyHistogram, so memory stays the same for any load, and are reported as percentiles (to about 6%).
+ * --record writes the actual final state and form data into the scripts.
+ */
+public final class ConversationReplay {
+    
+    private static final String USAGE =
+        "Usage: --replay [options] <script files or directories>\n"
+        + "  --threads <n>       number of concurrent conversations (default: number of processors)\n"
+        + "  --repeat <n>        replay every script this many times (default: 1)\n"
+        + "  --url <url>         replay against a chat server, e.g. http://localhost:8080\n"
+        + "  --record            write the actual final state and form data into the scripts\n"
+        + "  --metrics           print the dialog metrics (time per state and turn phase) at the end";
+    
+    private static final String SCRIPT_SUFFIX = ".script";
+    
+    // Failures printed in detail; the rest is only counted
+    private static final int MAX_REPORTED_FAILURES = 20;
+    private static final int MAX_REPORTED_DIFFERENCES = 10;
+    
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    
+    private static final DialogEngine.Listener NO_OUTPUT = message -> { };
+    
+    // Session id and state in the JSON replies of ChatServer
+    private static final Pattern SESSION_ID = Pattern.compile("\"id\":\"([^\"]+)\"");
+    private static final Pattern STATE = Pattern.compile("\"state\":\"([A-Z_0-9]+)\"");
+    
+    /**
+     * One recorded conversation
+     */
+    public static final class Script {
+        public final String name;
+        public final String language;
+        public final List<String> answers;
+        /** Language switched to before the answer with the given index (after the last one: at the end) */
+        public final Map<Integer, String> languageChanges;
+        public final ChatbotState expectedState;
+        /** Expected form data, null if the script does not check it */
+        public final Map<String, String> expectedFields;
+        
+        Script(String name, String language, List<String> answers, Map<Integer, String> languageChanges,
+                ChatbotState expectedState, Map<String, String> expectedFields) {
+            this.name = name;
+            this.language = language;
+            this.answers = Collections.unmodifiableList(answers);
+            this.languageChanges = Collections.unmodifiableMap(languageChanges);
+            this.expectedState = expectedState;
+            this.expectedFields = expectedFields != null ? Collections.unmodifiableMap(expectedFields) : null;
+        }
+    }
+    
+    /**
+     * Result of one replayed conversation
+     */
+    static final class Outcome {
+        ChatbotState state;
+        /** Final form data, null when replayed over HTTP */
+        Map<String, String> formData;
+        long[] turnNanos;
+        int turns;
+        String error;
+    }
+    
+    private final DialogGraph graph = DialogGraph.standard();
+    private final Map<String, Messages> messagesByLanguage = new HashMap<>();
+    private final URI serverUrl;
+    private final HttpClient http;
+    
+    private final AtomicInteger conversations = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<>();
+    // Fixed size however many turns are replayed
+    private final LatencyHistogram turnLatency = new LatencyHistogram();
+    
+    /**
+     * @param serverUrl chat server to replay against, null to run the dialog engine in-process
+     */
+    public ConversationReplay(URI serverUrl) {
+        this.serverUrl = serverUrl;
+        // ChatServer speaks HTTP/1.1 only, without the h2c upgrade attempt on every new connection
+        this.http = serverUrl != null ? HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build() : null;
+        messagesByLanguage.put("de", Messages.forLocale(Locale.GERMAN));
+        messagesByLanguage.put("en", Messages.forLocale(Locale.ENGLISH));
+    }
+    
+    /**
+     * Entry point of the replay mode
+     */
+    public static void main(String[] args) {
+        List<Path> inputs = new ArrayList<>();
+        int threads = Runtime.getRuntime().availableProcessors();
+        int repeat = 1;
+        URI serverUrl = null;
+        boolean record = false;
+        boolean printMetrics = false;
+        
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        if (threads < 1) {
+                            throw new IllegalArgumentException("--threads must be at least 1");
+                        }
+                        break;
+                    case "--repeat":
+                        repeat = Integer.parseInt(args[++i]);
+                        if (repeat < 1) {
+                            throw new IllegalArgumentException("--repeat must be at least 1");
+                        }
+                        break;
+                    case "--url":
+                        serverUrl = URI.create(args[++i].replaceAll("/+$", ""));
+                        break;
+                    case "--record":
+                        record = true;
+                        break;
+                    case "--metrics":
+                        printMetrics = true;
+                        break;
+                    default:
+                        if (args[i].startsWith("--")) {
+                            throw new IllegalArgumentException("Unknown argument: " + args[i]);
+                        }
+                        inputs.add(Paths.get(args[i]));
+                        break;
+                }
+            }
+            if (inputs.isEmpty()) {
+                throw new IllegalArgumentException("No script given");
+            }
+            if (record && serverUrl != null) {
+                throw new IllegalArgumentException("--record only works without --url");
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println(e instanceof ArrayIndexOutOfBoundsException ? "Missing option value" : e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        
+        try {
+            List<Path> files = scriptFiles(inputs);
+            ConversationReplay replay = new ConversationReplay(serverUrl);
+            if (record) {
+                for (Path file : files) {
+                    replay.record(file);
+                }
+                System.out.println(files.size() + " scripts recorded");
+                return;
+            }
+            
+            List<Script> scripts = new ArrayList<>();
+            for (Path file : files) {
+                scripts.add(load(file));
+            }
+            boolean passed = replay.run(scripts, repeat, threads);
+            if (printMetrics) {
+                // In-process this is the dialog engine, with --url only the client side
+                System.out.println();
+                System.out.print(Metrics.shared().dump());
+            }
+            System.exit(passed ? 0 : 1);
+        } catch (IOException | MissingResourceException e) {
+            System.err.println("Replay failed: " + e.getMessage());
+            System.exit(2);
+        } catch (InterruptedException e) {
+            System.err.println("Replay interrupted");
+            System.exit(2);
+        }
+    }
+    
+    /**
+     * The given script files and the *.script files of the given directories
+     */
+    static List<Path> scriptFiles(List<Path> inputs) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path input : inputs) {
+            if (!Files.isDirectory(input)) {
+                files.add(input);
+                continue;
+            }
+            List<Path> directoryFiles = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(input, "*" + SCRIPT_SUFFIX)) {
+                stream.forEach(directoryFiles::add);
+            }
+            Collections.sort(directoryFiles);
+            files.addAll(directoryFiles);
+        }
+        if (files.isEmpty()) {
+            throw new IOException("No " + SCRIPT_SUFFIX + " files in " + inputs);
+        }
+        return files;
+    }
+    
+    /**
+     * Read a script file
+     */
+    public static Script load(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return parse(reader, file.toString());
+        }
+    }
+    
+    static Script parse(BufferedReader reader, String source) throws IOException {
+        String language = "de";
+        List<String> answers = new ArrayList<>();
+        Map<Integer, String> languageChanges = new HashMap<>();
+        ChatbotState expectedState = ChatbotState.DONE;
+        Map<String, String> expectedFields = null;
+        
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.startsWith(">")) {
+                // The answer is taken as typed, only the separating blank is dropped
+                answers.add(line.startsWith("> ") ? line.substring(2) : line.substring(1));
+                continue;
+            }
+            line = line.trim();
+            if (line.isEmpty() || line.charAt(0) == '#') {
+                continue;
+            }
+            
+            try {
+                String[] columns = line.split("\\s+", 2);
+                if (columns.length < 2) {
+                    throw new IllegalArgumentException("Missing value");
+                }
+                switch (columns[0]) {
+                    case "lang":
+                        String lang = columns[1].toLowerCase(Locale.ROOT);
+                        if (!lang.equals("de") && !lang.equals("en")) {
+                            throw new IllegalArgumentException("Unknown language: " + columns[1]);
+                        }
+                        if (answers.isEmpty()) {
+                            language = lang;
+                        } else {
+                            languageChanges.put(answers.size(), lang);
+                        }
+                        break;
+                    case "state":
+                        expectedState = ChatbotState.valueOf(columns[1]);
+                        break;
+                    case "field":
+                        int separator = columns[1].indexOf('=');
+                        if (separator <= 0) {
+                            throw new IllegalArgumentException("Expected field <key>=<value>");
+                        }
+                        if (expectedFields == null) {
+                            expectedFields = new LinkedHashMap<>();
+                        }
+                        expectedFields.put(columns[1].substring(0, separator), columns[1].substring(separator + 1));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown line: " + columns[0]);
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IOException(source + " line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+        
+        Path fileName = Paths.get(source).getFileName();
+        return new Script(fileName != null ? fileName.toString() : source, language, answers, languageChanges,
+            expectedState, expectedFields);
+    }
+    
+    /**
+     * Replay all scripts repeat times and print the failures and the latency percentiles
+     * @return true if every conversation ended as its script expects
+     */
+    public boolean run(List<Script> scripts, int repeat, int threads) throws InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        try {
+            for (int round = 0; round < repeat; round++) {
+                for (Script script : scripts) {
+                    workers.execute(() -> replayAndCheck(script));
+                }
+            }
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } finally {
+            workers.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        
+        for (String failure : failures) {
+            System.out.println(failure);
+        }
+        if (failed.get() > failures.size()) {
+            System.out.println("... " + (failed.get() - failures.size()) + " more failed conversations");
+        }
+        
+        LatencyHistogram.Snapshot turns = turnLatency.snapshot();
+        System.out.println(String.format(Locale.ROOT, "%d conversations (%d scripts x %d) in %.2f s with %d threads, %d failed",
+            conversations.get(), scripts.size(), repeat, seconds, threads, failed.get()));
+        System.out.println(String.format(Locale.ROOT, "%d turns (%.0f turns/s)", turns.getCount(), turns.getCount() / seconds));
+        if (turns.getCount() > 0) {
+            StringBuilder report = new StringBuilder("Turn latency:");
+            for (double percentile : PERCENTILES) {
+                report.append(String.format(Locale.ROOT, " p%s %.1f us,", formatPercentile(percentile), turnLatency.percentile(percentile) / 1e3));
+            }
+            report.append(String.format(Locale.ROOT, " max %.1f us", turns.getMaxMicros()));
+            System.out.println(report);
+        }
+        return failed.get() == 0;
+    }
+    
+    private void replayAndCheck(Script script) {
+        Outcome outcome;
+        try {
+            outcome = serverUrl != null ? replayOverHttp(script) : replay(script);
+        } catch (IOException | RuntimeException e) {
+            outcome = new Outcome();
+            outcome.error = e.toString();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        
+        conversations.incrementAndGet();
+        if (outcome.turnNanos != null) {
+            for (int turn = 0; turn < outcome.turns; turn++) {
+                turnLatency.record(outcome.turnNanos[turn]);
+            }
+        }
+        List<String> differences = differences(script, outcome);
+        if (!differences.isEmpty() && failed.incrementAndGet() <= MAX_REPORTED_FAILURES) {
+            if (differences.size() > MAX_REPORTED_DIFFERENCES) {
+                int more = differences.size() - MAX_REPORTED_DIFFERENCES;
+                differences = new ArrayList<>(differences.subList(0, MAX_REPORTED_DIFFERENCES));
+                differences.add(more + " more");
+            }
+            failures.add(script.name + ": " + String.join("; ", differences));
+        }
+    }
+    
+    /**
+     * Run a script through a new session of the dialog engine
+     */
+    Outcome replay(Script script) {
+        DialogEngine engine = new DialogEngine(graph, messagesByLanguage.get(script.language), NO_OUTPUT);
+        Outcome outcome = new Outcome();
+        outcome.turnNanos = new long[script.answers.size()];
+        
+        engine.start();
+        for (String answer : script.answers) {
+            if (engine.getCurrentState() == ChatbotState.DONE) {
+                outcome.error = "Conversation ended after " + outcome.turns + " of " + script.answers.size() + " answers";
+                break;
+            }
+            changeLanguage(engine, script, outcome.turns);
+            long start = System.nanoTime();
+            engine.process(answer);
+            outcome.turnNanos[outcome.turns++] = System.nanoTime() - start;
+        }
+        if (outcome.error == null) {
+            changeLanguage(engine, script, outcome.turns);
+        }
+        outcome.state = engine.getCurrentState();
+        outcome.formData = new LinkedHashMap<>(engine.getFormData());
+        return outcome;
+    }
+    
+    private void changeLanguage(DialogEngine engine, Script script, int answer) {
+        String language = script.languageChanges.get(answer);
+        if (language != null) {
+            engine.changeLanguage(messagesByLanguage.get(language));
+        }
+    }
+    
+    /**
+     * Run a script as one conversation of the chat server; the latency is the HTTP round trip
+     */
+    Outcome replayOverHttp(Script script) throws IOException, InterruptedException {
+        Outcome outcome = new Outcome();
+        outcome.turnNanos = new long[script.answers.size()];
+        
+        String reply = send(HttpRequest.newBuilder(serverUrl.resolve("/session?lang=" + script.language))
+            .POST(HttpRequest.BodyPublishers.noBody()), 201);
+        Matcher id = SESSION_ID.matcher(reply);
+        if (!id.find()) {
+            throw new IOException("No session id in " + reply);
+        }
+        URI session = serverUrl.resolve("/session/" + id.group(1));
+        
+        try {
+            for (String answer : script.answers) {
+                changeLanguageOverHttp(session, script, outcome.turns);
+                long start = System.nanoTime();
+                reply = send(HttpRequest.newBuilder(session).POST(HttpRequest.BodyPublishers.ofString(answer, StandardCharsets.UTF_8)), 200);
+                outcome.turnNanos[outcome.turns++] = System.nanoTime() - start;
+            }
+            String changed = changeLanguageOverHttp(session, script, outcome.turns);
+            if (changed != null) {
+                reply = changed;
+            }
+        } catch (IOException e) {
+            outcome.error = "Answer " + (outcome.turns + 1) + ": " + e.getMessage();
+        } finally {
+            http.send(HttpRequest.newBuilder(session).DELETE().build(), HttpResponse.BodyHandlers.discarding());
+        }
+        
+        Matcher state = STATE.matcher(reply);
+        outcome.state = state.find() ? ChatbotState.valueOf(state.group(1)) : null;
+        return outcome;
+    }
+    
+    /**
+     * Switch the language of the session if the script does before this answer, returns the reply or null
+     */
+    private String changeLanguageOverHttp(URI session, Script script, int answer) throws IOException, InterruptedException {
+        String language = script.languageChanges.get(answer);
+        if (language == null) {
+            return null;
+        }
+        return send(HttpRequest.newBuilder(URI.create(session + "/lang?lang=" + language))
+            .POST(HttpRequest.BodyPublishers.noBody()), 200);
+    }
+    
+    private String send(HttpRequest.Builder request, int expectedStatus) throws IOException, InterruptedException {
+        HttpResponse<String> response = http.send(request.build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        if (response.statusCode() != expectedStatus) {
+            throw new IOException("HTTP " + response.statusCode() + " from " + request.build().uri());
+        }
+        return response.body();
+    }
+    
+    /**
+     * Deviations of a replayed conversation from its script, empty if it ended as expected
+     */
+    static List<String> differences(Script script, Outcome outcome) {
+        List<String> differences = new ArrayList<>();
+        if (outcome.error != null) {
+            differences.add(outcome.error);
+        }
+        if (outcome.state != script.expectedState) {
+            differences.add("state " + outcome.state + " instead of " + script.expectedState);
+        }
+        if (script.expectedFields == null || outcome.formData == null) {
+            return differences;
+        }
+        
+        for (Map.Entry<String, String> expected : script.expectedFields.entrySet()) {
+            String actual = outcome.formData.get(expected.getKey());
+            if (actual == null) {
+                differences.add(expected.getKey() + " missing");
+            } else if (!actual.equals(expected.getValue())) {
+                differences.add(expected.getKey() + "=" + actual + " instead of " + expected.getValue());
+            }
+        }
+        for (String key : outcome.formData.keySet()) {
+            if (!script.expectedFields.containsKey(key)) {
+                differences.add(key + " not expected");
+            }
+        }
+        return differences;
+    }
+    
+    /**
+     * Replay a script once and write it back with the actual final state and form data
+     */
+    void record(Path file) throws IOException {
+        Script script = load(file);
+        Outcome outcome = replay(script);
+        if (outcome.error != null) {
+            throw new IOException(file + ": " + outcome.error);
+        }
+        
+        // Everything but the expectations is kept, including the comments
+        List<String> kept = new ArrayList<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            String trimmed = line.trim();
+            if (line.startsWith(">") || !(trimmed.startsWith("state ") || trimmed.startsWith("field "))) {
+                kept.add(line);
+            }
+        }
+        while (!kept.isEmpty() && kept.get(kept.size() - 1).trim().isEmpty()) {
+            kept.remove(kept.size() - 1);
+        }
+        
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (String line : kept) {
+                writer.write(line);
+                writer.newLine();
+            }
+            writer.newLine();
+            writer.write("state " + outcome.state);
+            writer.newLine();
+            for (Map.Entry<String, String> field : outcome.formData.entrySet()) {
+                writer.write("field " + field.getKey() + "=" + field.getValue());
+                writer.newLine();
+            }
+        }
+    }
+    
+    private static String formatPercentile(double percentile) {
+        return percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile);
+    }
+}
@@ -0,0 +1,321 @@
+package rkinland;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs one conversation over a DialogGraph
+ * The state of the conversation (current state, collected form data) is kept in a DialogSession;
+ * questions, validation and transitions come from the graph. Bot messages are passed to
+ * a listener, so the engine works without GUI. Every turn is timed in Metrics.
+ */
+public class DialogEngine {
+    
+    /**
+     * Receives the messages of the bot
+     */
+    public interface Listener {
+        void botMessage(String message);
+        
+        /**
+         * Dialog reached DONE; exportRequested is true if the user wants the PDF
+         */
+        default void finished(boolean exportRequested) {
+        }
+    }
+    
+    // Messages of the engine itself, resolved when the class is loaded
+    private static final int WELCOME_MESSAGE = Messages.id("welcome.message");
+    private static final int WELCOME_HELP = Messages.id("welcome.help");
+    private static final int NOT_IMPLEMENTED = Messages.id("error.notImplemented");
+    private static final int INVALID_YES_NO = Messages.id("error.invalidYesNo");
+    private static final int INVALID_INPUT = Messages.id("error.invalidInput");
+    private static final int SELECTED = Messages.id("status.selected");
+    private static final int NO_EXPORT = Messages.id("app.thankyou.noExport");
+    
+    private final DialogGraph graph;
+    // Replaced when the user switches the language
+    private Messages messages;
+    private final Listener listener;
+    private final DialogSession session;
+    private final Map<String, String> formData;
+    private final Metrics metrics = Metrics.shared();
+    
+    public DialogEngine(DialogGraph graph, Messages messages, Listener listener) {
+        this(graph, messages, new DialogSession(), listener);
+    }
+    
+    /**
+     * Engine for an existing session, e.g. one of many sessions of the chat server
+     */
+    public DialogEngine(DialogGraph graph, Messages messages, DialogSession session, Listener listener) {
+        this.graph = graph;
+        this.messages = messages;
+        this.session = session;
+        this.listener = listener;
+        this.formData = session.getFormData();
+    }
+    
+    /**
+     * Start the conversation
+     */
+    public void start() {
+        metrics.increment(Metrics.Counter.CONVERSATIONS_STARTED);
+        botMessage(getMessage(WELCOME_MESSAGE));
+        botMessage(getMessage(WELCOME_HELP));
+        enter(ChatbotState.WELCOME);
+    }
+    
+    /**
+     * Process user input based on current chatbot state
+     */
+    public void process(String userInput) {
+        long turnStart = Metrics.start();
+        ChatbotState currentState = session.getCurrentState();
+        DialogNode node = graph.node(currentState);
+        if (node == null) {
+            if (currentState != ChatbotState.LANGUAGE_SELECTION) {
+                // Handle unprocessed states
+                botMessage(getMessage(NOT_IMPLEMENTED));
+                session.setCurrentState(ChatbotState.DONE);
+            }
+            return;
+        }
+        
+        ChatbotState next;
+        switch (node.kind) {
+            case TEXT:
+                next = processText(node, userInput);
+                break;
+            case YES_NO:
+                next = processYesNo(node, userInput);
+                break;
+            case CHOICE:
+                next = processChoice(node, userInput);
+                break;
+            case MULTI_CHOICE:
+                next = processMultiChoice(node, userInput);
+                break;
+            default:
+                next = node.handler.handle(this, userInput);
+                break;
+        }
+        
+        if (next != null) {
+            enter(next);
+        } else {
+            metrics.increment(Metrics.Counter.REASKS);
+        }
+        metrics.recordTurn(currentState, turnStart);
+    }
+    
+    /**
+     * Move to a state and ask its question
+     */
+    public void enter(ChatbotState state) {
+        session.setCurrentState(state);
+        ask(graph.node(state));
+    }
+    
+    /**
+     * Continue the conversation in another language and ask the open question again in it
+     * The answers collected so far are kept; the texts come from the resolved Messages of the language.
+     */
+    public void changeLanguage(Messages messages) {
+        this.messages = messages;
+        session.setLanguage(messages.getLocale());
+        metrics.increment(Metrics.Counter.LANGUAGE_CHANGES);
+        ask(graph.node(session.getCurrentState()));
+    }
+    
+    private void ask(DialogNode node) {
+        if (node != null) {
+            botMessage(getMessage(node.promptId));
+            showOptions(node.options);
+        }
+    }
+    
+    private ChatbotState processText(DialogNode node, String userInput) {
+        long validationStart = Metrics.start();
+        boolean valid = node.validator == null || node.validator.test(userInput);
+        metrics.record(Metrics.Phase.VALIDATION, validationStart);
+        if (!valid) {
+            botMessage(getMessage(node.errorId));
+            return null;
+        }
+        
+        String value = node.normalizer != null ? node.normalizer.apply(userInput) : userInput;
+        session.put(node.field.apply(formData), value);
+        if (node.derivedField != null) {
+            session.put(node.derivedField, node.derivation.apply(formData));
+        }
+        return node.next.next(this);
+    }
+    
+    private ChatbotState processYesNo(DialogNode node, String userInput) {
+        Boolean answer = parseYesNo(userInput);
+        if (answer == null) {
+            botMessage(getMessage(INVALID_YES_NO));
+            botMessage(getMessage(node.promptId));
+            return null;
+        }
+        
+        String field = answer ? node.yesField : node.noField;
+        if (field != null) {
+            session.put(field, "Yes");
+        }
+        return answer ? node.next.next(this) : node.nextNo.next(this);
+    }
+    
+    private ChatbotState processChoice(DialogNode node, String userInput) {
+        int index = parseOption(userInput.trim(), node.options.size());
+        if (index < 0) {
+            botMessage(getMessage(INVALID_INPUT) + " " + getMessage(node.promptId));
+            showOptions(node.options);
+            return null;
+        }
+        
+        DialogNode.Option option = node.options.get(index);
+        session.put(option.field, "Yes");
+        botMessage(getMessage(node.echoId) + ": " + getMessage(option.labelId));
+        return node.next.next(this);
+    }
+    
+    private ChatbotState processMultiChoice(DialogNode node, String userInput) {
+        // Parse comma-separated numbers, invalid entries are ignored
+        for (String selection : userInput.split(",")) {
+            int index = parseOption(selection.trim(), node.options.size());
+            if (index >= 0) {
+                session.put(node.options.get(index).field, "Yes");
+            }
+        }
+        return node.next.next(this);
+    }
+    
+    /**
+     * Next selected means of transport after the current state, or the accommodation if none is left
+     */
+    ChatbotState nextTransport() {
+        DialogGraph.Transport[] transports = graph.transports();
+        
+        for (int i = graph.transportIndex(session.getCurrentState()) + 1; i < transports.length; i++) {
+            DialogGraph.Transport transport = transports[i];
+            if (!"Yes".equals(formData.get(transport.option.field))) {
+                continue;
+            }
+            if (transport.firstState == null) {
+                // No questions for this transport, only confirm the selection
+                botMessage(getMessage(transport.option.labelId) + " " + getMessage(SELECTED));
+                continue;
+            }
+            return transport.firstState;
+        }
+        return ChatbotState.UEBERNACHTUNG;
+    }
+    
+    /**
+     * End the dialog after the final question
+     */
+    ChatbotState finish(boolean exportRequested) {
+        session.setCurrentState(ChatbotState.DONE);
+        session.setExportRequested(exportRequested);
+        if (!exportRequested) {
+            botMessage(getMessage(NO_EXPORT));
+        }
+        metrics.increment(Metrics.Counter.CONVERSATIONS_FINISHED);
+        listener.finished(exportRequested);
+        return ChatbotState.DONE;
+    }
+    
+    private void showOptions(List<DialogNode.Option> options) {
+        if (options.isEmpty()) {
+            return;
+        }
+        long start = Metrics.start();
+        List<String> menu = messages.menu(options);
+        metrics.record(Metrics.Phase.MESSAGES, start);
+        for (int i = 0; i < menu.size(); i++) {
+            botMessage(menu.get(i));
+        }
+    }
+    
+    /**
+     * Menu number (1-based) to option index, -1 if invalid
+     */
+    private static int parseOption(String input, int optionCount) {
+        try {
+            int number = Integer.parseInt(input);
+            return number >= 1 && number <= optionCount ? number - 1 : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+    
+    /**
+     * Yes/no answer: true for ja/yes/j/y/1, false for nein/no/n/0, null if invalid
+     */
+    static Boolean parseYesNo(String userInput) {
+        switch (userInput.toLowerCase().trim()) {
+            case "ja":
+            case "j":
+            case "yes":
+            case "y":
+            case "1":
+                return true;
+            case "nein":
+            case "n":
+            case "no":
+            case "0":
+                return false;
+            default:
+                return null;
+        }
+    }
+    
+    void botMessage(String message) {
+        long start = Metrics.start();
+        listener.botMessage(message);
+        metrics.record(Metrics.Phase.OUTPUT, start);
+    }
+    
+    String getMessage(String key) {
+        long start = Metrics.start();
+        String message = messages.getMessage(key);
+        metrics.record(Metrics.Phase.MESSAGES, start);
+        return message;
+    }
+    
+    String getMessage(int id) {
+        long start = Metrics.start();
+        String message = messages.getMessage(id);
+        metrics.record(Metrics.Phase.MESSAGES, start);
+        return message;
+    }
+    
+    void setHotelAnzahl(int hotelAnzahl) {
+        session.setHotelAnzahl(hotelAnzahl);
+    }
+    
+    public int getHotelAnzahl() {
+        return session.getHotelAnzahl();
+    }
+    
+    public ChatbotState getCurrentState() {
+        return session.getCurrentState();
+    }
+    
+    public DialogSession getSession() {
+        return session;
+    }
+    
+    /**
+     * Form data collected so far, keyed by the PDF field names used by PdfFormFiller
+     */
+    public Map<String, String> getFormData() {
+        return formData;
+    }
+    
+    public Messages getMessages() {
+        return messages;
+    }
+}
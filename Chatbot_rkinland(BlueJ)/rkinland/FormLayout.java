@@ -0,0 +1,294 @@
+package rkinland;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Where each claim field goes in rkinland.pdf: descriptor table indexed by ClaimField
+ * A field is either filled into an AcroForm field, or drawn onto a page as text, as an "X"
+ * or as the address of the accounting office. Fields without a descriptor are filled into
+ * the AcroForm field of the same name. One table drives the form filling and all overlays.
+ * The table is read from a layout file (format in rkinland/rkinland.layout) and immutable.
+ */
+public final class FormLayout {
+    
+    /**
+     * How a field is put on the form
+     */
+    public enum Kind {
+        /** AcroForm field, checkboxes are ticked for "Yes" */
+        FORM_FIELD,
+        /** Value drawn as text at a position */
+        TEXT_OVERLAY,
+        /** "X" drawn at a position if the field is "Yes" */
+        CHECK_OVERLAY,
+        /** Address lines drawn at a position if the field is "Yes"; the first such field of the layout on a page wins */
+        ADDRESS_OVERLAY
+    }
+    
+    /**
+     * Placement of one field
+     */
+    public static final class FieldDescriptor {
+        public final ClaimField field;
+        public final Kind kind;
+        /** AcroForm field name, only for FORM_FIELD */
+        public final String pdfFieldName;
+        /** 1-based page number, only for overlays */
+        public final int page;
+        public final float x;
+        public final float y;
+        public final float fontSize;
+        /** Text lines, only for ADDRESS_OVERLAY */
+        public final List<String> lines;
+        
+        FieldDescriptor(ClaimField field, Kind kind, String pdfFieldName, int page, float x, float y, float fontSize, String[] lines) {
+            this.field = field;
+            this.kind = kind;
+            this.pdfFieldName = pdfFieldName;
+            this.page = page;
+            this.x = x;
+            this.y = y;
+            this.fontSize = fontSize;
+            this.lines = lines != null ? Collections.unmodifiableList(Arrays.asList(lines.clone())) : Collections.<String>emptyList();
+        }
+        
+        public boolean isOverlay() {
+            return kind != Kind.FORM_FIELD;
+        }
+    }
+    
+    // Layout of the bundled rkinland.pdf, on the class path next to this class
+    private static final String STANDARD_RESOURCE = "rkinland.layout";
+    
+    // Line spacing of address lines relative to the font size
+    public static final float ADDRESS_LEADING = 1.5f;
+    
+    private static FormLayout standard;
+    
+    private final FieldDescriptor[] descriptors;
+    private final FieldDescriptor[] formFields;
+    private final FieldDescriptor[][] overlaysByPage;
+    
+    /**
+     * @param placed the descriptors in the order of the layout; overlays are drawn in this order
+     */
+    private FormLayout(FieldDescriptor[] descriptors, List<FieldDescriptor> placed) {
+        this.descriptors = descriptors;
+        
+        List<FieldDescriptor> forms = new ArrayList<>();
+        int pages = 0;
+        for (FieldDescriptor descriptor : descriptors) {
+            if (descriptor.isOverlay()) {
+                pages = Math.max(pages, descriptor.page);
+            } else {
+                forms.add(descriptor);
+            }
+        }
+        this.formFields = forms.toArray(new FieldDescriptor[0]);
+        
+        List<List<FieldDescriptor>> byPage = new ArrayList<>();
+        for (int i = 0; i < pages; i++) {
+            byPage.add(new ArrayList<>());
+        }
+        // Layout order, not ClaimField order: it decides which address is printed when several offices are set
+        for (FieldDescriptor descriptor : placed) {
+            if (descriptor.isOverlay()) {
+                byPage.get(descriptor.page - 1).add(descriptor);
+            }
+        }
+        this.overlaysByPage = new FieldDescriptor[pages][];
+        for (int i = 0; i < pages; i++) {
+            overlaysByPage[i] = byPage.get(i).toArray(new FieldDescriptor[0]);
+        }
+    }
+    
+    /**
+     * Layout of the bundled rkinland.pdf
+     */
+    public static synchronized FormLayout standard() {
+        if (standard == null) {
+            try (InputStream in = FormLayout.class.getResourceAsStream(STANDARD_RESOURCE)) {
+                if (in == null) {
+                    throw new IllegalStateException("Missing resource rkinland/" + STANDARD_RESOURCE);
+                }
+                standard = parse(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)), STANDARD_RESOURCE);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return standard;
+    }
+    
+    /**
+     * Read a layout file
+     */
+    public static FormLayout load(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return parse(reader, file.toString());
+        }
+    }
+    
+    /**
+     * Parse the lines of a layout file
+     * @param source name of the file for error messages
+     * @throws IOException if a line cannot be read or is invalid
+     */
+    static FormLayout parse(BufferedReader reader, String source) throws IOException {
+        Builder b = new Builder();
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.charAt(0) == '#') {
+                continue;
+            }
+            
+            try {
+                String[] columns = line.split("\\s+", 2);
+                String kind = columns[0].toLowerCase(Locale.ROOT);
+                if (kind.equals("form")) {
+                    String[] values = columns(columns, 2);
+                    b.formField(values[0], values[1]);
+                    continue;
+                }
+                
+                String[] values = columns(columns, kind.equals("address") ? 6 : 5);
+                int page = Integer.parseInt(values[1]);
+                float x = Float.parseFloat(values[2]);
+                float y = Float.parseFloat(values[3]);
+                float fontSize = Float.parseFloat(values[4]);
+                switch (kind) {
+                    case "text":
+                        b.text(page, values[0], x, y, fontSize);
+                        break;
+                    case "check":
+                        b.check(page, values[0], x, y, fontSize);
+                        break;
+                    case "address":
+                        b.address(page, values[0], x, y, fontSize, values[5].trim().split("\\s*\\|\\s*"));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown kind: " + columns[0]);
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IOException(source + " line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+        return b.build();
+    }
+    
+    /**
+     * Split the rest of a line into count columns, the last one taking what is left
+     */
+    private static String[] columns(String[] columns, int count) {
+        String[] values = columns.length > 1 ? columns[1].split("\\s+", count) : new String[0];
+        if (values.length < count) {
+            throw new IllegalArgumentException("Expected " + (count + 1) + " columns");
+        }
+        return values;
+    }
+    
+    /**
+     * Descriptor of a field
+     */
+    public FieldDescriptor descriptor(ClaimField field) {
+        return descriptors[field.ordinal()];
+    }
+    
+    /**
+     * True if the field is drawn onto the page instead of filled into an AcroForm field
+     */
+    public boolean isOverlay(ClaimField field) {
+        return descriptors[field.ordinal()].isOverlay();
+    }
+    
+    /**
+     * All FORM_FIELD descriptors in ClaimField order
+     */
+    FieldDescriptor[] formFields() {
+        return formFields;
+    }
+    
+    /**
+     * Overlay descriptors of a page (1-based) in ClaimField order, empty if the page has none
+     */
+    FieldDescriptor[] overlays(int page) {
+        return page <= overlaysByPage.length ? overlaysByPage[page - 1] : new FieldDescriptor[0];
+    }
+    
+    /**
+     * Number of the last page with overlays
+     */
+    int overlayPageCount() {
+        return overlaysByPage.length;
+    }
+    
+    /**
+     * Collects the descriptors; fields that are not mentioned become AcroForm fields of their own name
+     */
+    static final class Builder {
+        private final FieldDescriptor[] descriptors = new FieldDescriptor[ClaimField.values().length];
+        private final List<FieldDescriptor> placed = new ArrayList<>();
+        
+        Builder formField(String key, String pdfFieldName) {
+            return add(new FieldDescriptor(field(key), Kind.FORM_FIELD, pdfFieldName, 0, 0, 0, 0, null));
+        }
+        
+        Builder text(int page, String key, float x, float y, float fontSize) {
+            return add(new FieldDescriptor(field(key), Kind.TEXT_OVERLAY, null, page, x, y, fontSize, null));
+        }
+        
+        Builder check(int page, String key, float x, float y, float fontSize) {
+            return add(new FieldDescriptor(field(key), Kind.CHECK_OVERLAY, null, page, x, y, fontSize, null));
+        }
+        
+        Builder address(int page, String key, float x, float y, float fontSize, String... lines) {
+            return add(new FieldDescriptor(field(key), Kind.ADDRESS_OVERLAY, null, page, x, y, fontSize, lines));
+        }
+        
+        private Builder add(FieldDescriptor descriptor) {
+            if (descriptor.isOverlay() && descriptor.page < 1) {
+                throw new IllegalArgumentException("Invalid page " + descriptor.page + " for " + descriptor.field.getKey());
+            }
+            if (descriptor.isOverlay() && !(descriptor.fontSize > 0)) {
+                throw new IllegalArgumentException("Invalid font size " + descriptor.fontSize + " for " + descriptor.field.getKey());
+            }
+            if (descriptors[descriptor.field.ordinal()] != null) {
+                throw new IllegalArgumentException("Field placed twice: " + descriptor.field.getKey());
+            }
+            descriptors[descriptor.field.ordinal()] = descriptor;
+            placed.add(descriptor);
+            return this;
+        }
+        
+        private static ClaimField field(String key) {
+            ClaimField field = ClaimField.forKey(key);
+            if (field == null) {
+                throw new IllegalArgumentException("Unknown field: " + key);
+            }
+            return field;
+        }
+        
+        FormLayout build() {
+            for (ClaimField field : ClaimField.values()) {
+                if (descriptors[field.ordinal()] == null) {
+                    descriptors[field.ordinal()] = new FieldDescriptor(field, Kind.FORM_FIELD, field.getKey(), 0, 0, 0, 0, null);
+                }
+            }
+            return new FormLayout(descriptors.clone(), new ArrayList<>(placed));
+        }
+    }
+}
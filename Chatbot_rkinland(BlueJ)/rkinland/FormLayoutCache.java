@@ -0,0 +1,73 @@
+package rkinland;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide cache for a parsed layout file (<template>.layout next to the PDF template)
+ * The file is parsed once into an immutable FormLayout; every PDF generation then uses it
+ * as it is. The layout is reloaded when the file on disk changes. Without the file the
+ * bundled layout of rkinland.pdf is used.
+ */
+public final class FormLayoutCache {
+    
+    private static final Map<File, FormLayoutCache> CACHES = new ConcurrentHashMap<>();
+    
+    private final File layoutFile;
+    
+    private FormLayout layout;
+    private long loadedLastModified;
+    private long loadedLength;
+    
+    private FormLayoutCache(File layoutFile) {
+        this.layoutFile = layoutFile;
+    }
+    
+    /**
+     * Get the shared cache for a layout file
+     */
+    public static FormLayoutCache forFile(File layoutFile) {
+        return CACHES.computeIfAbsent(layoutFile.getAbsoluteFile(), FormLayoutCache::new);
+    }
+    
+    /**
+     * Get the shared cache for the layout belonging to a template, e.g. rkinland.layout for rkinland.pdf
+     */
+    public static FormLayoutCache forTemplate(File templateFile) {
+        String name = templateFile.getName();
+        int dot = name.lastIndexOf('.');
+        String layoutName = (dot > 0 ? name.substring(0, dot) : name) + ".layout";
+        return forFile(new File(templateFile.getAbsoluteFile().getParentFile(), layoutName));
+    }
+    
+    /**
+     * Get the layout file this cache belongs to
+     */
+    public File getLayoutFile() {
+        return layoutFile;
+    }
+    
+    /**
+     * Return the parsed layout, (re)loading it if the file changed since the last load
+     * @throws IOException if the file cannot be read or contains an invalid line
+     */
+    public synchronized FormLayout currentLayout() throws IOException {
+        if (!layoutFile.isFile()) {
+            layout = null;
+            return FormLayout.standard();
+        }
+        
+        long lastModified = layoutFile.lastModified();
+        long length = layoutFile.length();
+        
+        if (layout == null || lastModified != loadedLastModified || length != loadedLength) {
+            layout = FormLayout.load(layoutFile.toPath());
+            loadedLastModified = lastModified;
+            loadedLength = length;
+        }
+        
+        return layout;
+    }
+}
@@ -0,0 +1,159 @@
+package rkinland;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with log-linear buckets, in the manner of HdrHistogram
+ * Every power of two is split into 16 buckets, so a recorded value is known to about 6%.
+ * Values range from 1 ns to about 68 s; longer ones are counted in the last bucket. Recording
+ * is a few atomic increments and safe from any number of threads; the snapshot is not atomic
+ * against concurrent recording, which only matters for the last few values.
+ */
+public final class LatencyHistogram {
+    
+    /**
+     * Summary of a histogram, in microseconds; the getters make it a JMX composite value
+     */
+    public static final class Snapshot {
+        private final long count;
+        private final double meanMicros;
+        private final double p50Micros;
+        private final double p90Micros;
+        private final double p99Micros;
+        private final double p999Micros;
+        private final double maxMicros;
+        
+        Snapshot(long count, double meanMicros, double p50Micros, double p90Micros, double p99Micros, double p999Micros, double maxMicros) {
+            this.count = count;
+            this.meanMicros = meanMicros;
+            this.p50Micros = p50Micros;
+            this.p90Micros = p90Micros;
+            this.p99Micros = p99Micros;
+            this.p999Micros = p999Micros;
+            this.maxMicros = maxMicros;
+        }
+        
+        public long getCount() {
+            return count;
+        }
+        
+        public double getMeanMicros() {
+            return meanMicros;
+        }
+        
+        public double getP50Micros() {
+            return p50Micros;
+        }
+        
+        public double getP90Micros() {
+            return p90Micros;
+        }
+        
+        public double getP99Micros() {
+            return p99Micros;
+        }
+        
+        public double getP999Micros() {
+            return p999Micros;
+        }
+        
+        public double getMaxMicros() {
+            return maxMicros;
+        }
+    }
+    
+    // 2^SUB_BUCKET_BITS buckets per power of two
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_VALUE_BITS = 36;
+    private static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+    private static final int BUCKETS = (MAX_VALUE_BITS - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+    
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+    
+    /**
+     * Record one duration in nanoseconds
+     */
+    public void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        counts.incrementAndGet(bucket(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+    
+    public long getCount() {
+        return count.sum();
+    }
+    
+    /**
+     * Value in nanoseconds that the given percentage of the recorded values do not exceed
+     * Reported as the upper end of its bucket, 0 if nothing was recorded.
+     */
+    public long percentile(double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValue(i), max.get());
+            }
+        }
+        return max.get();
+    }
+    
+    public Snapshot snapshot() {
+        long n = count.sum();
+        double mean = n > 0 ? sum.sum() / (double) n : 0;
+        return new Snapshot(n, mean / 1e3, percentile(50) / 1e3, percentile(90) / 1e3, percentile(99) / 1e3,
+            percentile(99.9) / 1e3, max.get() / 1e3);
+    }
+    
+    /**
+     * Forget all recorded values
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+    
+    /**
+     * Values below 16 have a bucket each; above, the top five bits select the bucket within the power of two
+     */
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+    
+    /**
+     * Largest value that falls into a bucket
+     */
+    static long highestValue(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long subBucket = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
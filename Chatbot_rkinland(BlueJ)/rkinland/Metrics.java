@@ -0,0 +1,215 @@
+package rkinland;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Process-wide counters and latency histograms of the dialog and the PDF generation
+ * Every user turn is timed per ChatbotState it answers, and split into validation, message
+ * lookup and output (posting to the GUI or the HTTP reply); the PDF generation is split into
+ * template, form fields, overlays and write, the preview into template rendering and updates.
+ * Recording costs two System.nanoTime calls and a few atomic increments, so the metrics stay
+ * on unless -Drkinland.metrics=false is given.
+ * They are registered as the MXBean rkinland:type=Metrics and dumped as text by dump().
+ */
+public final class Metrics implements MetricsMXBean {
+    
+    /** System property to switch the metrics off (false) */
+    public static final String ENABLED_PROPERTY = "rkinland.metrics";
+    
+    /** Name of the MXBean */
+    public static final String OBJECT_NAME = "rkinland:type=Metrics";
+    
+    private static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty(ENABLED_PROPERTY));
+    
+    /**
+     * Timed part of a turn or of the PDF generation
+     */
+    public enum Phase {
+        VALIDATION("turn.validation"),
+        MESSAGES("turn.messages"),
+        OUTPUT("turn.output"),
+        PDF_TEMPLATE("pdf.template"),
+        PDF_FIELDS("pdf.fields"),
+        PDF_OVERLAYS("pdf.overlays"),
+        PDF_WRITE("pdf.write"),
+        PDF_TOTAL("pdf.total"),
+        PREVIEW_TEMPLATE("preview.template"),
+        PREVIEW_UPDATE("preview.update");
+        
+        final String metricName;
+        
+        Phase(String metricName) {
+            this.metricName = metricName;
+        }
+    }
+    
+    public enum Counter {
+        CONVERSATIONS_STARTED("conversations.started"),
+        CONVERSATIONS_FINISHED("conversations.finished"),
+        TURNS("turns"),
+        /** Answers that were rejected and asked again */
+        REASKS("reasks"),
+        LANGUAGE_CHANGES("language.changes"),
+        PDF_GENERATED("pdf.generated"),
+        PDF_FAILED("pdf.failed");
+        
+        final String metricName;
+        
+        Counter(String metricName) {
+            this.metricName = metricName;
+        }
+    }
+    
+    private static Metrics shared;
+    
+    private final long startNanos = System.nanoTime();
+    private final Map<Counter, LongAdder> counters = new EnumMap<>(Counter.class);
+    private final Map<Phase, LatencyHistogram> phases = new EnumMap<>(Phase.class);
+    // Created on the first turn in a state, most conversations only visit a part of the dialog
+    private final AtomicReferenceArray<LatencyHistogram> turns = new AtomicReferenceArray<>(ChatbotState.values().length);
+    
+    private Metrics() {
+        for (Counter counter : Counter.values()) {
+            counters.put(counter, new LongAdder());
+        }
+        for (Phase phase : Phase.values()) {
+            phases.put(phase, new LatencyHistogram());
+        }
+    }
+    
+    /**
+     * Get the metrics of this process, registering the MXBean on first use
+     */
+    public static synchronized Metrics shared() {
+        if (shared == null) {
+            shared = new Metrics();
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(shared, new ObjectName(OBJECT_NAME));
+            } catch (JMException e) {
+                System.err.println("Warning: Could not register " + OBJECT_NAME + ": " + e.getMessage());
+            }
+        }
+        return shared;
+    }
+    
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+    
+    /**
+     * Start time for one of the record methods, 0 when the metrics are off
+     */
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+    
+    /**
+     * Record a turn answering the given state, started at start()
+     */
+    public void recordTurn(ChatbotState state, long start) {
+        if (!ENABLED) {
+            return;
+        }
+        long nanos = System.nanoTime() - start;
+        LatencyHistogram histogram = turns.get(state.ordinal());
+        if (histogram == null) {
+            turns.compareAndSet(state.ordinal(), null, new LatencyHistogram());
+            histogram = turns.get(state.ordinal());
+        }
+        histogram.record(nanos);
+        counters.get(Counter.TURNS).increment();
+    }
+    
+    /**
+     * Record a phase started at start()
+     */
+    public void record(Phase phase, long start) {
+        if (ENABLED) {
+            phases.get(phase).record(System.nanoTime() - start);
+        }
+    }
+    
+    public void increment(Counter counter) {
+        if (ENABLED) {
+            counters.get(counter).increment();
+        }
+    }
+    
+    public LatencyHistogram histogram(Phase phase) {
+        return phases.get(phase);
+    }
+    
+    @Override
+    public Map<String, Long> getCounters() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (Map.Entry<Counter, LongAdder> counter : counters.entrySet()) {
+            values.put(counter.getKey().metricName, counter.getValue().sum());
+        }
+        return values;
+    }
+    
+    /**
+     * Summaries of the turns per state (only the states answered so far) and of the phases
+     */
+    @Override
+    public Map<String, LatencyHistogram.Snapshot> getLatencies() {
+        Map<String, LatencyHistogram.Snapshot> values = new LinkedHashMap<>();
+        ChatbotState[] states = ChatbotState.values();
+        for (int i = 0; i < states.length; i++) {
+            LatencyHistogram histogram = turns.get(i);
+            if (histogram != null) {
+                values.put("turn." + states[i], histogram.snapshot());
+            }
+        }
+        for (Map.Entry<Phase, LatencyHistogram> phase : phases.entrySet()) {
+            values.put(phase.getKey().metricName, phase.getValue().snapshot());
+        }
+        return values;
+    }
+    
+    @Override
+    public String dump() {
+        StringBuilder text = new StringBuilder(4096);
+        text.append(String.format(Locale.ROOT, "uptime %.1f s%s%n", (System.nanoTime() - startNanos) / 1e9,
+            ENABLED ? "" : ", metrics off (" + ENABLED_PROPERTY + "=false)"));
+        
+        text.append(String.format(Locale.ROOT, "%n%-40s %10s%n", "counter", "value"));
+        for (Map.Entry<String, Long> counter : getCounters().entrySet()) {
+            text.append(String.format(Locale.ROOT, "%-40s %10d%n", counter.getKey(), counter.getValue()));
+        }
+        
+        text.append(String.format(Locale.ROOT, "%n%-40s %10s %10s %10s %10s %10s %10s %10s%n",
+            "latency (us)", "count", "mean", "p50", "p90", "p99", "p99.9", "max"));
+        for (Map.Entry<String, LatencyHistogram.Snapshot> latency : getLatencies().entrySet()) {
+            LatencyHistogram.Snapshot s = latency.getValue();
+            text.append(String.format(Locale.ROOT, "%-40s %10d %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f%n", latency.getKey(),
+                s.getCount(), s.getMeanMicros(), s.getP50Micros(), s.getP90Micros(), s.getP99Micros(), s.getP999Micros(), s.getMaxMicros()));
+        }
+        return text.toString();
+    }
+    
+    @Override
+    public void reset() {
+        for (LongAdder counter : counters.values()) {
+            counter.reset();
+        }
+        for (LatencyHistogram histogram : phases.values()) {
+            histogram.reset();
+        }
+        for (int i = 0; i < turns.length(); i++) {
+            LatencyHistogram histogram = turns.get(i);
+            if (histogram != null) {
+                histogram.reset();
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package rkinland;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+
+/**
+ * File name of a filled form, built from a pattern with placeholders
+ *   {name}  name of the traveller     {date}  begin of the trip (yyyy-MM-dd)
+ *   {nr}    running number, six digits: the record number in batch mode, else the next unused one
+ * Without {nr} a name that is already taken gets the next unused number before its extension.
+ * Runs of characters that are not allowed in file names are replaced by one '_'. The pattern can be set
+ * with the system property rkinland.output.pattern, e.g. formular_{name}_{date}.pdf
+ */
+public final class OutputPattern {
+    
+    /** System property with the file name pattern */
+    public static final String PATTERN_PROPERTY = "rkinland.output.pattern";
+    
+    /** Name the GUI has always written */
+    public static final String DEFAULT_PATTERN = "ausgefuelltes_formular.pdf";
+    
+    /** Default of the batch mode, one file per record */
+    public static final String DEFAULT_BATCH_PATTERN = "ausgefuelltes_formular_{nr}.pdf";
+    
+    private static final String NUMBER = "{nr}";
+    
+    private final String pattern;
+    
+    public OutputPattern(String pattern) {
+        if (pattern == null || pattern.isEmpty() || pattern.indexOf('/') >= 0 || pattern.indexOf('\\') >= 0) {
+            throw new IllegalArgumentException("Invalid file name pattern: " + pattern);
+        }
+        this.pattern = pattern;
+    }
+    
+    /**
+     * Pattern from the system property rkinland.output.pattern, or the given default
+     */
+    public static OutputPattern configured(String defaultPattern) {
+        return new OutputPattern(System.getProperty(PATTERN_PROPERTY, defaultPattern));
+    }
+    
+    public String getPattern() {
+        return pattern;
+    }
+    
+    /**
+     * True if the pattern contains {nr}, so every number gives another name
+     */
+    public boolean isNumbered() {
+        return pattern.contains(NUMBER);
+    }
+    
+    /**
+     * File name for a claim
+     */
+    public String fileName(ClaimRecord claim, long number) {
+        String name = claim.get(ClaimField.NAME);
+        if (name == null) {
+            name = claim.get(ClaimField.NACHNAME);
+        }
+        LocalDate date = claim.getDate(ClaimField.BEGINN_REISE_DATUM);
+        
+        String fileName = pattern
+            .replace("{name}", name != null ? name : "")
+            .replace("{date}", date != null ? date.toString() : "")
+            .replace(NUMBER, String.format("%06d", number));
+        return sanitize(fileName);
+    }
+    
+    /**
+     * Reserve the first file in a directory the claim can be written to without replacing an earlier form
+     * The file is created empty, which is atomic: a concurrent run gets the next number. The caller replaces
+     * it with the finished form, or deletes it if that fails.
+     */
+    public File reserveFreeFile(File directory, ClaimRecord claim) throws IOException {
+        OutputPattern numbered = isNumbered() ? this : new OutputPattern(numberedPattern());
+        File file = new File(directory, fileName(claim, 1));
+        for (long number = 2; ; number++) {
+            try {
+                Files.createFile(file.toPath());
+                return file;
+            } catch (FileAlreadyExistsException e) {
+                file = new File(directory, numbered.fileName(claim, number));
+            }
+        }
+    }
+    
+    // ausgefuelltes_formular.pdf -> ausgefuelltes_formular_{nr}.pdf
+    private String numberedPattern() {
+        int extension = pattern.lastIndexOf('.');
+        if (extension <= 0) {
+            return pattern + "_" + NUMBER;
+        }
+        return pattern.substring(0, extension) + "_" + NUMBER + pattern.substring(extension);
+    }
+    
+    private static String sanitize(String fileName) {
+        StringBuilder sanitized = new StringBuilder(fileName.length());
+        boolean replaced = false;
+        for (int i = 0; i < fileName.length(); i++) {
+            char c = fileName.charAt(i);
+            if (Character.isLetterOrDigit(c) || c == '.' || c == '-' || c == '_') {
+                sanitized.append(c);
+                replaced = false;
+            } else if (!replaced) {
+                // One '_' for a run of replaced characters, e.g. the ", " in "Nachname, Vorname"
+                sanitized.append('_');
+                replaced = true;
+            }
+        }
+        return sanitized.toString();
+    }
+}
@@ -0,0 +1,50 @@
+package rkinland;
+
+import com.itextpdf.text.pdf.BaseFont;
+import com.itextpdf.text.pdf.PdfContentByte;
+
+/**
+ * Writes the overlay texts of one page as a single text object
+ * The BT/ET block is opened with the first text and closed by end(); the font is only
+ * set when font or size change. Pages without overlay text get no block at all.
+ */
+public final class OverlayWriter {
+    
+    private final PdfContentByte canvas;
+    
+    private boolean open;
+    private BaseFont font;
+    private float fontSize;
+    
+    public OverlayWriter(PdfContentByte canvas) {
+        this.canvas = canvas;
+    }
+    
+    /**
+     * Show a text with its baseline starting at x, y
+     */
+    public void showText(String text, float x, float y, BaseFont textFont, float size) {
+        if (!open) {
+            canvas.beginText();
+            open = true;
+            font = null;
+        }
+        if (textFont != font || size != fontSize) {
+            canvas.setFontAndSize(textFont, size);
+            font = textFont;
+            fontSize = size;
+        }
+        canvas.setTextMatrix(x, y);
+        canvas.showText(text);
+    }
+    
+    /**
+     * Close the text object, if one was opened
+     */
+    public void end() {
+        if (open) {
+            canvas.endText();
+            open = false;
+        }
+    }
+}
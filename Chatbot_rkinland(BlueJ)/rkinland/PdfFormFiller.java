@@ -0,0 +1,284 @@
+package rkinland;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Map;
+
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.pdf.AcroFields;
+import com.itextpdf.text.pdf.PdfContentByte;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.PdfStamper;
+
+/**
+ * Headless form-filling engine for the travel expense form (rkinland.pdf)
+ * Takes the claim data collected by the chatbot (a ClaimRecord, or a map with the keys of
+ * its formData) and writes the filled PDF. No JavaFX classes are needed, and one instance can be
+ * shared by any number of threads. The steps of every generation are timed in Metrics.
+ */
+public final class PdfFormFiller {
+    
+    /**
+     * Receives non-fatal problems and the progress of a form filling
+     */
+    public interface FillListener {
+        void warning(String message);
+        
+        /**
+         * Called after each step of the generation
+         */
+        default void progress(int doneSteps, int totalSteps) {
+        }
+    }
+    
+    /** Listener that drops all warnings */
+    public static final FillListener SILENT = message -> { };
+    
+    // Steps reported to FillListener.progress: template, fields, three for the overlay pages, write
+    private static final int TOTAL_STEPS = 6;
+    private static final int OVERLAY_STEPS = 3;
+    
+    private final PdfTemplateCache template;
+    private final FormLayoutCache layouts;
+    private final boolean flattenForm;
+    
+    /**
+     * Filler using the layout file next to the template (e.g. rkinland.layout), or the bundled layout
+     */
+    public PdfFormFiller(PdfTemplateCache template) {
+        this(template, FormLayoutCache.forTemplate(template.getTemplateFile()), false);
+    }
+    
+    /**
+     * @param flattenForm print the field values into the pages instead of keeping editable fields,
+     *                    needed when the pages are copied into another document
+     */
+    public PdfFormFiller(PdfTemplateCache template, FormLayoutCache layouts, boolean flattenForm) {
+        this.template = template;
+        this.layouts = layouts;
+        this.flattenForm = flattenForm;
+    }
+    
+    /**
+     * Filler with the same template and layout that flattens the form
+     */
+    public PdfFormFiller flattening() {
+        return new PdfFormFiller(template, layouts, true);
+    }
+    
+    /**
+     * Fill the form with the given claim data and write the PDF to a stream
+     * The stream is not closed. The generation stops with an InterruptedIOException
+     * between two steps when the calling thread is interrupted.
+     */
+    public void fill(Map<String, String> claimData, OutputStream out, FillListener listener)
+            throws IOException, DocumentException {
+        fill(ClaimRecord.of(claimData), out, listener);
+    }
+    
+    /**
+     * Fill the form with a claim record and write the PDF to a stream
+     * The stream is not closed. The generation stops with an InterruptedIOException
+     * between two steps when the calling thread is interrupted.
+     */
+    public void fill(ClaimRecord claimData, OutputStream out, FillListener listener)
+            throws IOException, DocumentException {
+        Metrics metrics = Metrics.shared();
+        long fillStart = Metrics.start();
+        boolean written = false;
+        
+        FormLayout layout = layouts.currentLayout();
+        FontCache fonts = FontCache.shared();
+        PdfReader reader = template.openReader();
+        listener.progress(1, TOTAL_STEPS);
+        
+        try {
+            checkCancelled();
+            PdfStamper stamper = new PdfStamper(reader, out);
+            
+            // Get the form fields and direct content for custom text
+            AcroFields form = stamper.getAcroFields();
+            metrics.record(Metrics.Phase.PDF_TEMPLATE, fillStart);
+            if (flattenForm) {
+                // The template leaves the appearances to the viewer (NeedAppearances), flattening needs them
+                form.setGenerateAppearances(true);
+            }
+            if (fonts.getUnicodeFont() != null) {
+                // Used for field values the font of the field cannot print
+                form.addSubstitutionFont(fonts.getUnicodeFont());
+            }
+            
+            // Process regular form fields (non-date/time fields)
+            long phaseStart = Metrics.start();
+            processRegularFields(form, layout, fonts, claimData, listener);
+            metrics.record(Metrics.Phase.PDF_FIELDS, phaseStart);
+            listener.progress(2, TOTAL_STEPS);
+            
+            // Process date and time fields with custom text overlays
+            phaseStart = Metrics.start();
+            addCustomTextOverlays(stamper, layout, fonts, claimData, listener);
+            metrics.record(Metrics.Phase.PDF_OVERLAYS, phaseStart);
+            
+            // Don't flatten the form so fields remain editable, unless asked to
+            stamper.setFormFlattening(flattenForm);
+            
+            // Closing the stamper writes the document
+            checkCancelled();
+            phaseStart = Metrics.start();
+            stamper.close();
+            metrics.record(Metrics.Phase.PDF_WRITE, phaseStart);
+            written = true;
+            listener.progress(TOTAL_STEPS, TOTAL_STEPS);
+        } finally {
+            reader.close();
+            if (written) {
+                metrics.record(Metrics.Phase.PDF_TOTAL, fillStart);
+                metrics.increment(Metrics.Counter.PDF_GENERATED);
+            } else {
+                metrics.increment(Metrics.Counter.PDF_FAILED);
+            }
+        }
+    }
+    
+    /**
+     * Fill the form with the given claim data and return the PDF bytes
+     */
+    public byte[] fillToBytes(ClaimRecord claimData, FillListener listener)
+            throws IOException, DocumentException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(2 * 1024 * 1024);
+        fill(claimData, out, listener);
+        return out.toByteArray();
+    }
+    
+    /**
+     * Fill all fields that go into AcroForm fields; keys unknown to ClaimField use their own name
+     */
+    private static void processRegularFields(AcroFields form, FormLayout layout, FontCache fonts, ClaimRecord claimData, FillListener listener) throws IOException, DocumentException {
+        for (FormLayout.FieldDescriptor descriptor : layout.formFields()) {
+            String fieldValue = claimData.get(descriptor.field);
+            if (fieldValue != null) {
+                setFormField(form, descriptor.pdfFieldName, fieldValue, fonts, listener);
+            }
+        }
+        for (Map.Entry<String, String> entry : claimData.otherFields().entrySet()) {
+            setFormField(form, entry.getKey(), entry.getValue(), fonts, listener);
+        }
+    }
+    
+    /**
+     * Set one AcroForm field; checkboxes and radio buttons are ticked for "Yes"
+     */
+    private static void setFormField(AcroFields form, String pdfFieldName, String fieldValue, FontCache fonts, FillListener listener) {
+        try {
+            // Check if field exists to avoid errors
+            if (form.getField(pdfFieldName) != null) {
+                int fieldType = form.getFieldType(pdfFieldName);
+                
+                if (fieldValue.equals("Yes") && 
+                    (fieldType == AcroFields.FIELD_TYPE_CHECKBOX ||
+                     fieldType == AcroFields.FIELD_TYPE_RADIOBUTTON)) {
+                    // For checkboxes and radio buttons
+                    String[] states = form.getAppearanceStates(pdfFieldName);
+                    if (states != null && states.length > 0) {
+                        for (String state : states) {
+                            if (!state.equalsIgnoreCase("Off")) {
+                                form.setField(pdfFieldName, state);
+                                break;
+                            }
+                        }
+                    }
+                } else {
+                    // For text fields and other types; without generated appearances (NeedAppearances) the viewer prints the value
+                    if (form.isGenerateAppearances()) {
+                        warnIfNotPrintable(fonts, pdfFieldName, fieldValue, listener);
+                    }
+                    form.setField(pdfFieldName, fieldValue);
+                }
+            }
+        } catch (Exception e) {
+            String warningMsg = "Warning: Could not process field " + pdfFieldName + ": " + e.getMessage();
+            listener.warning(warningMsg);
+        }
+    }
+    
+    /**
+     * Abort the generation if the calling thread was interrupted (e.g. a cancelled background task)
+     */
+    private static void checkCancelled() throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("PDF generation cancelled");
+        }
+    }
+    
+    /**
+     * Add custom text overlays for all fields requiring direct placement
+     */
+    private static void addCustomTextOverlays(PdfStamper stamper, FormLayout layout, FontCache fonts, ClaimRecord claimData, FillListener listener) throws IOException {
+        // Add page overlays: page 1 travel dates and times, page 2 transport, page 3 accommodation
+        int pages = layout.overlayPageCount();
+        for (int page = 1; page <= pages; page++) {
+            checkCancelled();
+            if (page > stamper.getReader().getNumberOfPages()) {
+                listener.warning("Warning: The layout places fields on page " + page + ", the template has only " + stamper.getReader().getNumberOfPages());
+                break;
+            }
+            addPageOverlays(stamper.getOverContent(page), fonts, page, layout.overlays(page), claimData, listener);
+            listener.progress(2 + page * OVERLAY_STEPS / pages, TOTAL_STEPS);
+        }
+        listener.progress(2 + OVERLAY_STEPS, TOTAL_STEPS);
+    }
+    
+    /**
+     * Render the overlays of one page from the layout, all in one text object
+     */
+    private static void addPageOverlays(PdfContentByte canvas, FontCache fonts, int page, FormLayout.FieldDescriptor[] overlays, ClaimRecord claimData, FillListener listener) {
+        OverlayWriter writer = new OverlayWriter(canvas);
+        boolean addressWritten = false;
+        
+        try {
+            for (FormLayout.FieldDescriptor descriptor : overlays) {
+                switch (descriptor.kind) {
+                    case ADDRESS_OVERLAY:
+                        // Accounting office address, only the first selected office is printed
+                        if (!addressWritten && claimData.isSet(descriptor.field)) {
+                            float leading = descriptor.fontSize * FormLayout.ADDRESS_LEADING;
+                            for (int i = 0; i < descriptor.lines.size(); i++) {
+                                String line = descriptor.lines.get(i);
+                                writer.showText(line, descriptor.x, descriptor.y - i * leading, fonts.fontFor(line), descriptor.fontSize);
+                            }
+                            addressWritten = true;
+                        }
+                        break;
+                    case CHECK_OVERLAY:
+                        // Checkbox-style overlay with an "X"
+                        if (claimData.isSet(descriptor.field)) {
+                            writer.showText("X", descriptor.x, descriptor.y, fonts.fontFor("X"), descriptor.fontSize);
+                        }
+                        break;
+                    default:
+                        String fieldValue = claimData.get(descriptor.field);
+                        if (fieldValue != null && !fieldValue.isEmpty()) {
+                            warnIfNotPrintable(fonts, descriptor.field.getKey(), fieldValue, listener);
+                            writer.showText(fieldValue, descriptor.x, descriptor.y, fonts.fontFor(fieldValue), descriptor.fontSize);
+                        }
+                        break;
+                }
+            }
+            writer.end();
+        } catch (Exception e) {
+            listener.warning("Fehler beim Erstellen der Textüberlagerungen auf Seite " + page + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Report a value with characters neither Helvetica nor the configured Unicode font can print
+     */
+    private static void warnIfNotPrintable(FontCache fonts, String fieldName, String fieldValue, FillListener listener) {
+        if (!fonts.canDisplay(fieldValue)) {
+            listener.warning("Warning: Field " + fieldName + " contains characters that cannot be printed"
+                + (fonts.getUnicodeFont() == null ? ", set -D" + FontCache.FONT_PROPERTY + "=<font file> for a Unicode font" : ""));
+        }
+    }
+}
@@ -0,0 +1,526 @@
+package rkinland;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.font.FontRenderContext;
+import java.awt.font.LineMetrics;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+import com.itextpdf.text.Rectangle;
+import com.itextpdf.text.pdf.AcroFields;
+import com.itextpdf.text.pdf.PdfDictionary;
+import com.itextpdf.text.pdf.PdfName;
+import com.itextpdf.text.pdf.PdfNumber;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.PdfString;
+
+/**
+ * Page images of the filled form for a preview while the claim is still being entered
+ * The empty template pages are rendered once with PDFBox. The values are then drawn onto a
+ * copy of a page where PdfFormFiller puts them: AcroForm values into the rectangles of their
+ * widgets, overlays from the per-page overlays of the layout. An update only redraws the pages
+ * whose values changed, a few milliseconds per page. The pages are rendered again when the template
+ * changes on disk (see PdfTemplateCache). Fonts are approximated; the generated PDF stays the reference.
+ */
+public final class PdfPreview {
+    
+    /** Default resolution in pixels per PDF point (90 dpi) */
+    public static final float DEFAULT_SCALE = 1.25f;
+    
+    // PDFBox reports every substituted font of the template; that only concerns the preview
+    private static final Logger PDFBOX_LOG = Logger.getLogger("org.apache.pdfbox");
+    
+    static {
+        PDFBOX_LOG.setLevel(Level.SEVERE);
+    }
+    
+    // Font size in the default appearance of a field, e.g. "/ArialMT 10 Tf 0 g"; 0 means fit to the field
+    private static final Pattern FONT_SIZE = Pattern.compile("([0-9.]+)\\s+Tf");
+    // Fitted sizes: single lines to the height (at most 12 pt, like iText), multiline fields 10 pt
+    private static final float MAX_FIT_FONT_SIZE = 12;
+    private static final float MULTILINE_FONT_SIZE = 10;
+    private static final float MIN_FONT_SIZE = 4;
+    // Space between the border of a field and its text, in points
+    private static final float FIELD_PADDING = 2;
+    private static final int MULTILINE_FLAG = 1 << 12;
+    // Quadding (/Q) of text fields
+    private static final int CENTERED = 1;
+    private static final int RIGHT_ALIGNED = 2;
+    
+    private static final Color INK = Color.BLACK;
+    // Stands in for the Arial and Helvetica of the form
+    private static final Font BASE_FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 1);
+    
+    /**
+     * Widget of an AcroForm field on a page
+     */
+    private static final class Widget {
+        final int page;
+        final Rectangle box;
+        final boolean checkbox;
+        final boolean multiline;
+        final int alignment;
+        final float fontSize;
+        
+        Widget(int page, Rectangle box, boolean checkbox, boolean multiline, int alignment, float fontSize) {
+            this.page = page;
+            this.box = box;
+            this.checkbox = checkbox;
+            this.multiline = multiline;
+            this.alignment = alignment;
+            this.fontSize = fontSize;
+        }
+    }
+    
+    /**
+     * One value drawn on a page, in PDF coordinates; pages whose stamps did not change are not redrawn
+     */
+    private static final class Stamp {
+        enum Kind { TEXT, FIELD, CHECK }
+        
+        final Kind kind;
+        final String text;
+        // TEXT: baseline; FIELD and CHECK: lower left corner of the widget
+        final float x;
+        final float y;
+        final float width;
+        final float height;
+        final float fontSize;
+        final boolean multiline;
+        final int alignment;
+        
+        Stamp(Kind kind, String text, float x, float y, float width, float height, float fontSize, boolean multiline, int alignment) {
+            this.kind = kind;
+            this.text = text;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            this.fontSize = fontSize;
+            this.multiline = multiline;
+            this.alignment = alignment;
+        }
+        
+        static Stamp text(String text, float x, float y, float fontSize) {
+            return new Stamp(Kind.TEXT, text, x, y, 0, 0, fontSize, false, 0);
+        }
+        
+        static Stamp field(Widget widget, String text) {
+            Rectangle box = widget.box;
+            return new Stamp(widget.checkbox ? Kind.CHECK : Kind.FIELD, text, box.getLeft(), box.getBottom(),
+                box.getWidth(), box.getHeight(), widget.fontSize, widget.multiline, widget.alignment);
+        }
+        
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Stamp)) {
+                return false;
+            }
+            Stamp stamp = (Stamp) other;
+            return kind == stamp.kind && text.equals(stamp.text) && x == stamp.x && y == stamp.y && width == stamp.width
+                && height == stamp.height && fontSize == stamp.fontSize && multiline == stamp.multiline && alignment == stamp.alignment;
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, text, x, y, fontSize);
+        }
+    }
+    
+    private final PdfTemplateCache template;
+    private final FormLayoutCache layouts;
+    private final float scale;
+    
+    // Read from the template on the first update and whenever the cache reloads it
+    private byte[] renderedTemplate;
+    private BufferedImage[] blankPages;
+    private PDRectangle[] cropBoxes;
+    private Map<String, Widget[]> widgets;
+    
+    private FormLayout drawnLayout;
+    private List<List<Stamp>> drawnStamps;
+    private BufferedImage[] pages;
+    
+    /**
+     * Preview with the layout file next to the template (e.g. rkinland.layout), or the bundled layout
+     */
+    public PdfPreview(PdfTemplateCache template) {
+        this(template, FormLayoutCache.forTemplate(template.getTemplateFile()), DEFAULT_SCALE);
+    }
+    
+    /**
+     * @param scale pixels per PDF point
+     */
+    public PdfPreview(PdfTemplateCache template, FormLayoutCache layouts, float scale) {
+        this.template = template;
+        this.layouts = layouts;
+        this.scale = scale;
+    }
+    
+    /**
+     * Bring the page images up to date with the claim data
+     * The first update renders the template, which takes a while, as does the first one after the template
+     * changed; later ones redraw only changed pages.
+     * @return the 1-based numbers of the redrawn pages, empty if nothing changed
+     */
+    public synchronized int[] update(Map<String, String> claimData) throws IOException {
+        return update(ClaimRecord.of(claimData));
+    }
+    
+    /**
+     * Bring the page images up to date with a claim record
+     * @return the 1-based numbers of the redrawn pages, empty if nothing changed
+     */
+    public synchronized int[] update(ClaimRecord claimData) throws IOException {
+        Metrics metrics = Metrics.shared();
+        byte[] templateBytes = template.currentBytes();
+        if (templateBytes != renderedTemplate) {
+            long phaseStart = Metrics.start();
+            loadTemplate(templateBytes);
+            // Other pages and field rectangles, nothing drawn so far is valid
+            renderedTemplate = templateBytes;
+            drawnStamps = null;
+            metrics.record(Metrics.Phase.PREVIEW_TEMPLATE, phaseStart);
+        }
+        
+        long updateStart = Metrics.start();
+        FormLayout layout = layouts.currentLayout();
+        if (layout != drawnLayout) {
+            // Another layout may move every value
+            drawnLayout = layout;
+            drawnStamps = null;
+        }
+        
+        List<List<Stamp>> stamps = stamps(layout, claimData);
+        int[] redrawn = new int[pages.length];
+        int count = 0;
+        for (int i = 0; i < pages.length; i++) {
+            if (drawnStamps == null || !stamps.get(i).equals(drawnStamps.get(i))) {
+                // A new image, the previous one may still be shown
+                pages[i] = draw(i, stamps.get(i));
+                redrawn[count++] = i + 1;
+            }
+        }
+        drawnStamps = stamps;
+        metrics.record(Metrics.Phase.PREVIEW_UPDATE, updateStart);
+        return Arrays.copyOf(redrawn, count);
+    }
+    
+    /**
+     * Number of pages, 0 before the first update
+     */
+    public synchronized int getPageCount() {
+        return pages != null ? pages.length : 0;
+    }
+    
+    /**
+     * Current image of a page (1-based); the image is not changed by later updates
+     */
+    public synchronized BufferedImage page(int page) {
+        return pages[page - 1];
+    }
+    
+    /**
+     * Render the empty pages and collect the widgets of the form fields, both from the same template version
+     */
+    private void loadTemplate(byte[] templateBytes) throws IOException {
+        try (PDDocument document = PDDocument.load(templateBytes)) {
+            PDFRenderer renderer = new PDFRenderer(document);
+            int pageCount = document.getNumberOfPages();
+            BufferedImage[] rendered = new BufferedImage[pageCount];
+            PDRectangle[] boxes = new PDRectangle[pageCount];
+            for (int i = 0; i < pageCount; i++) {
+                rendered[i] = renderer.renderImage(i, scale, ImageType.RGB);
+                boxes[i] = document.getPage(i).getCropBox();
+            }
+            cropBoxes = boxes;
+            widgets = readWidgets(templateBytes);
+            pages = rendered.clone();
+            blankPages = rendered;
+            
+            // Load the font and shape rasterizers now rather than with the first answers
+            List<Stamp> warmUp = Arrays.asList(Stamp.text("0", 0, 0, MULTILINE_FONT_SIZE),
+                new Stamp(Stamp.Kind.FIELD, "0", 0, 0, 10, 10, 0, false, CENTERED),
+                new Stamp(Stamp.Kind.CHECK, "Yes", 0, 0, 10, 10, 0, false, 0));
+            draw(0, warmUp);
+        }
+    }
+    
+    private Map<String, Widget[]> readWidgets(byte[] templateBytes) throws IOException {
+        PdfReader reader = new PdfReader(templateBytes);
+        try {
+            AcroFields form = reader.getAcroFields();
+            Map<String, Widget[]> byName = new HashMap<>();
+            for (String name : form.getFields().keySet()) {
+                List<AcroFields.FieldPosition> positions = form.getFieldPositions(name);
+                if (positions == null || positions.isEmpty()) {
+                    continue;
+                }
+                int type = form.getFieldType(name);
+                boolean checkbox = type == AcroFields.FIELD_TYPE_CHECKBOX || type == AcroFields.FIELD_TYPE_RADIOBUTTON;
+                PdfDictionary merged = form.getFieldItem(name).getMerged(0);
+                PdfNumber flags = merged.getAsNumber(PdfName.FF);
+                boolean multiline = flags != null && (flags.intValue() & MULTILINE_FLAG) != 0;
+                PdfNumber quadding = merged.getAsNumber(PdfName.Q);
+                int alignment = quadding != null ? quadding.intValue() : 0;
+                float fontSize = fontSize(merged.getAsString(PdfName.DA));
+                
+                Widget[] fieldWidgets = new Widget[positions.size()];
+                for (int i = 0; i < fieldWidgets.length; i++) {
+                    AcroFields.FieldPosition position = positions.get(i);
+                    fieldWidgets[i] = new Widget(position.page, position.position, checkbox, multiline, alignment, fontSize);
+                }
+                byName.put(name, fieldWidgets);
+            }
+            return byName;
+        } finally {
+            reader.close();
+        }
+    }
+    
+    /**
+     * Font size of a default appearance, 0 to fit the text to the field
+     */
+    private static float fontSize(PdfString defaultAppearance) {
+        if (defaultAppearance == null) {
+            return 0;
+        }
+        Matcher size = FONT_SIZE.matcher(defaultAppearance.toUnicodeString());
+        return size.find() ? Float.parseFloat(size.group(1)) : 0;
+    }
+    
+    /**
+     * What PdfFormFiller would put on each page, in the same order
+     */
+    private List<List<Stamp>> stamps(FormLayout layout, ClaimRecord claimData) {
+        List<List<Stamp>> stamps = new ArrayList<>(pages.length);
+        for (int i = 0; i < pages.length; i++) {
+            stamps.add(new ArrayList<>());
+        }
+        
+        for (FormLayout.FieldDescriptor descriptor : layout.formFields()) {
+            String fieldValue = claimData.get(descriptor.field);
+            if (fieldValue != null) {
+                addFieldStamps(stamps, descriptor.pdfFieldName, fieldValue);
+            }
+        }
+        for (Map.Entry<String, String> entry : claimData.otherFields().entrySet()) {
+            addFieldStamps(stamps, entry.getKey(), entry.getValue());
+        }
+        
+        int overlayPages = Math.min(layout.overlayPageCount(), pages.length);
+        for (int page = 1; page <= overlayPages; page++) {
+            addOverlayStamps(stamps.get(page - 1), layout.overlays(page), claimData);
+        }
+        return stamps;
+    }
+    
+    private void addFieldStamps(List<List<Stamp>> stamps, String pdfFieldName, String fieldValue) {
+        Widget[] fieldWidgets = widgets.get(pdfFieldName);
+        if (fieldValue.isEmpty() || fieldWidgets == null) {
+            return;
+        }
+        for (Widget widget : fieldWidgets) {
+            // Checkboxes are only ticked for "Yes", like in PdfFormFiller
+            if (widget.page <= stamps.size() && (!widget.checkbox || fieldValue.equals("Yes"))) {
+                stamps.get(widget.page - 1).add(Stamp.field(widget, fieldValue));
+            }
+        }
+    }
+    
+    /**
+     * Overlays of one page, following PdfFormFiller.addPageOverlays
+     */
+    private static void addOverlayStamps(List<Stamp> stamps, FormLayout.FieldDescriptor[] overlays, ClaimRecord claimData) {
+        boolean addressWritten = false;
+        for (FormLayout.FieldDescriptor descriptor : overlays) {
+            switch (descriptor.kind) {
+                case ADDRESS_OVERLAY:
+                    if (!addressWritten && claimData.isSet(descriptor.field)) {
+                        float leading = descriptor.fontSize * FormLayout.ADDRESS_LEADING;
+                        for (int i = 0; i < descriptor.lines.size(); i++) {
+                            stamps.add(Stamp.text(descriptor.lines.get(i), descriptor.x, descriptor.y - i * leading, descriptor.fontSize));
+                        }
+                        addressWritten = true;
+                    }
+                    break;
+                case CHECK_OVERLAY:
+                    if (claimData.isSet(descriptor.field)) {
+                        stamps.add(Stamp.text("X", descriptor.x, descriptor.y, descriptor.fontSize));
+                    }
+                    break;
+                default:
+                    String fieldValue = claimData.get(descriptor.field);
+                    if (fieldValue != null && !fieldValue.isEmpty()) {
+                        stamps.add(Stamp.text(fieldValue, descriptor.x, descriptor.y, descriptor.fontSize));
+                    }
+                    break;
+            }
+        }
+    }
+    
+    /**
+     * Copy of the empty page with the stamps drawn on it
+     */
+    private BufferedImage draw(int index, List<Stamp> stamps) {
+        BufferedImage blank = blankPages[index];
+        BufferedImage image = new BufferedImage(blank.getWidth(), blank.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.drawImage(blank, 0, 0, null);
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setColor(INK);
+            // From here on in PDF points with the y axis pointing up, like the layout
+            PDRectangle crop = cropBoxes[index];
+            g.scale(scale, scale);
+            g.translate(-crop.getLowerLeftX(), crop.getUpperRightY());
+            for (Stamp stamp : stamps) {
+                switch (stamp.kind) {
+                    case TEXT:
+                        drawText(g, stamp.text, stamp.x, stamp.y, stamp.fontSize);
+                        break;
+                    case CHECK:
+                        drawCheck(g, stamp);
+                        break;
+                    default:
+                        drawField(g, stamp);
+                        break;
+                }
+            }
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+    
+    /**
+     * Text with its baseline at (x, y) in PDF coordinates
+     */
+    private static void drawText(Graphics2D g, String text, float x, float y, float fontSize) {
+        g.setFont(BASE_FONT.deriveFont(fontSize));
+        g.drawString(text, x, -y);
+    }
+    
+    /**
+     * Value of a text field: one line centered vertically, or wrapped lines from the top for multiline fields
+     */
+    private static void drawField(Graphics2D g, Stamp stamp) {
+        FontRenderContext context = g.getFontRenderContext();
+        float width = stamp.width - 2 * FIELD_PADDING;
+        float fontSize = stamp.fontSize;
+        if (fontSize == 0) {
+            // Height of Arial from descender to ascender is about 1.12 times the font size
+            fontSize = stamp.multiline ? MULTILINE_FONT_SIZE : Math.min(MAX_FIT_FONT_SIZE, (stamp.height - FIELD_PADDING) / 1.12f);
+        }
+        Font font = BASE_FONT.deriveFont(Math.max(fontSize, MIN_FONT_SIZE));
+        
+        if (!stamp.multiline) {
+            // Fitted fields shrink to the width, fixed sizes are cut off like in a viewer
+            float textWidth = width(font, stamp.text, context);
+            if (stamp.fontSize == 0 && textWidth > width) {
+                font = font.deriveFont(Math.max(font.getSize2D() * width / textWidth, MIN_FONT_SIZE));
+            }
+            LineMetrics metrics = font.getLineMetrics(stamp.text, context);
+            float baseline = stamp.y + (stamp.height - metrics.getAscent() + metrics.getDescent()) / 2;
+            float x = stamp.x + FIELD_PADDING;
+            if (stamp.alignment == CENTERED || stamp.alignment == RIGHT_ALIGNED) {
+                float space = width - width(font, stamp.text, context);
+                x += stamp.alignment == CENTERED ? space / 2 : space;
+            }
+            Graphics2D clipped = (Graphics2D) g.create();
+            try {
+                clipped.clip(new Rectangle2D.Float(stamp.x, -stamp.y - stamp.height, stamp.width, stamp.height));
+                clipped.setFont(font);
+                clipped.drawString(stamp.text, x, -baseline);
+            } finally {
+                clipped.dispose();
+            }
+            return;
+        }
+        
+        g.setFont(font);
+        LineMetrics metrics = font.getLineMetrics(stamp.text, context);
+        float bottom = stamp.y + FIELD_PADDING;
+        float baseline = stamp.y + stamp.height - FIELD_PADDING - metrics.getAscent();
+        for (String line : wrap(stamp.text, font, context, width)) {
+            if (baseline < bottom) {
+                break;
+            }
+            g.drawString(line, stamp.x + FIELD_PADDING, -baseline);
+            baseline -= metrics.getHeight();
+        }
+    }
+    
+    private static float width(Font font, String text, FontRenderContext context) {
+        return (float) font.getStringBounds(text, context).getWidth();
+    }
+    
+    /**
+     * Lines of a text broken at blanks (or within words that are too long) to fit the width
+     */
+    private static List<String> wrap(String text, Font font, FontRenderContext context, float width) {
+        List<String> lines = new ArrayList<>();
+        for (String paragraph : text.split("\r?\n", -1)) {
+            StringBuilder line = new StringBuilder();
+            for (String word : paragraph.split(" ")) {
+                String candidate = line.length() == 0 ? word : line + " " + word;
+                if (width(font, candidate, context) <= width) {
+                    line.setLength(0);
+                    line.append(candidate);
+                    continue;
+                }
+                if (line.length() > 0) {
+                    lines.add(line.toString());
+                    line.setLength(0);
+                }
+                // Break a word that is too long by characters
+                for (int i = 0; i < word.length(); i++) {
+                    if (line.length() > 0 && width(font, line.toString() + word.charAt(i), context) > width) {
+                        lines.add(line.toString());
+                        line.setLength(0);
+                    }
+                    line.append(word.charAt(i));
+                }
+            }
+            lines.add(line.toString());
+        }
+        return lines;
+    }
+    
+    /**
+     * Tick mark in the box of a checkbox
+     */
+    private static void drawCheck(Graphics2D g, Stamp stamp) {
+        float size = Math.min(stamp.width, stamp.height) * 0.7f;
+        float x = stamp.x + (stamp.width - size) / 2;
+        float y = stamp.y + (stamp.height - size) / 2;
+        Path2D.Float tick = new Path2D.Float();
+        tick.moveTo(x + size * 0.1f, -(y + size * 0.5f));
+        tick.lineTo(x + size * 0.4f, -(y + size * 0.15f));
+        tick.lineTo(x + size * 0.9f, -(y + size * 0.9f));
+        g.setStroke(new BasicStroke(size * 0.15f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+        g.draw(tick);
+    }
+}
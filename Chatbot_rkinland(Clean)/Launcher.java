@@ -0,0 +1,12 @@
+/**
+ * Entry point of the runnable jar
+ * JavaFX refuses to start a main class that extends Application when the JavaFX classes
+ * come from the class path (as in the shaded jar) instead of the module path, so the jar
+ * starts through this class.
+ */
+public class Launcher {
+    
+    public static void main(String[] args) {
+        TravelExpenseChatbotGUI.main(args);
+    }
+}
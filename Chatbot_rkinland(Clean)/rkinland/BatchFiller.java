@@ -0,0 +1,352 @@
+package rkinland;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Command-line batch mode: fills one rkinland.pdf per claim record of a CSV or JSONL file
+ * The PDFs are generated on a configurable worker pool that shares one parsed template.
+ * They are written as single files, never replacing an existing one, or streamed into one ZIP archive
+ * or one merged PDF.
+ * Failed records are written to an error side file, throughput is reported at the end.
+ */
+public final class BatchFiller {
+    
+    private static final String USAGE =
+        "Usage: --batch [options] <claims.csv|claims.jsonl>\n"
+        + "  --out <dir>         output directory (default: batch-output)\n"
+        + "  --threads <n>       number of worker threads (default: number of processors)\n"
+        + "  --template <file>   PDF template (default: rkinland.pdf)\n"
+        + "  --name <pattern>    file name of the PDFs with {nr} and optionally {name}, {date}\n"
+        + "                      (default: rkinland.output.pattern or " + OutputPattern.DEFAULT_BATCH_PATTERN + ")\n"
+        + "  --zip <file>        write all PDFs into one ZIP archive instead of single files\n"
+        + "  --merge <file>      write all claims into one PDF instead of single files\n"
+        + "  --errors <file>     error side file (default: <out>/errors.txt)";
+    
+    // Progress is printed every this many finished claims
+    private static final int PROGRESS_INTERVAL = 1000;
+    
+    // Same checks as the dialog applies to the answers (dates, times, IBAN, ...)
+    private static final Map<String, Validator> FIELD_VALIDATORS = DialogGraph.standard().fieldValidators();
+    
+    private final PdfFormFiller filler;
+    private final File outputDir;
+    private final OutputPattern outputPattern;
+    private final int threads;
+    
+    // Set for ZIP or merged output, else every PDF is its own file
+    private File archiveFile;
+    private PdfArchiveWriter.Format archiveFormat;
+    private PdfFormFiller archiveFiller;
+    private PdfArchiveWriter archive;
+    
+    private final AtomicInteger succeeded = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    // Records done, counted once per record whatever the outcome; drives the progress lines
+    private final AtomicInteger processed = new AtomicInteger();
+    
+    public BatchFiller(PdfFormFiller filler, File outputDir, int threads) {
+        this(filler, outputDir, new OutputPattern(OutputPattern.DEFAULT_BATCH_PATTERN), threads);
+    }
+    
+    /**
+     * @param outputPattern file names of the PDFs, must contain {nr}
+     */
+    public BatchFiller(PdfFormFiller filler, File outputDir, OutputPattern outputPattern, int threads) {
+        if (!outputPattern.isNumbered()) {
+            throw new IllegalArgumentException("The file name pattern needs {nr}: " + outputPattern.getPattern());
+        }
+        this.filler = filler;
+        this.outputDir = outputDir;
+        this.outputPattern = outputPattern;
+        this.threads = threads;
+    }
+    
+    /**
+     * Write all PDFs into one file instead of single files in the output directory
+     */
+    public void setArchive(File archiveFile, PdfArchiveWriter.Format archiveFormat) {
+        this.archiveFile = archiveFile;
+        this.archiveFormat = archiveFormat;
+        // Copied pages keep no form fields, the values have to be part of the page
+        this.archiveFiller = archiveFormat == PdfArchiveWriter.Format.MERGED_PDF ? filler.flattening() : filler;
+    }
+    
+    /**
+     * Entry point of the batch mode
+     */
+    public static void main(String[] args) {
+        File input = null;
+        File outputDir = new File("batch-output");
+        File template = new File("rkinland.pdf");
+        File errors = null;
+        OutputPattern outputPattern = null;
+        File archiveFile = null;
+        PdfArchiveWriter.Format archiveFormat = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--out":
+                        outputDir = new File(args[++i]);
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        if (threads < 1) {
+                            throw new IllegalArgumentException("--threads must be at least 1");
+                        }
+                        break;
+                    case "--template":
+                        template = new File(args[++i]);
+                        break;
+                    case "--errors":
+                        errors = new File(args[++i]);
+                        break;
+                    case "--name":
+                        outputPattern = new OutputPattern(args[++i]);
+                        break;
+                    case "--zip":
+                    case "--merge":
+                        if (archiveFile != null) {
+                            throw new IllegalArgumentException("Only one of --zip and --merge can be given");
+                        }
+                        archiveFormat = args[i].equals("--zip") ? PdfArchiveWriter.Format.ZIP : PdfArchiveWriter.Format.MERGED_PDF;
+                        archiveFile = new File(args[++i]);
+                        break;
+                    default:
+                        if (args[i].startsWith("--") || input != null) {
+                            throw new IllegalArgumentException("Unknown argument: " + args[i]);
+                        }
+                        input = new File(args[i]);
+                        break;
+                }
+            }
+            if (input == null) {
+                throw new IllegalArgumentException("No claim file given");
+            }
+            if (outputPattern == null) {
+                outputPattern = OutputPattern.configured(OutputPattern.DEFAULT_BATCH_PATTERN);
+            }
+            if (!outputPattern.isNumbered()) {
+                throw new IllegalArgumentException("The file name pattern needs {nr}: " + outputPattern.getPattern());
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println(e instanceof ArrayIndexOutOfBoundsException ? "Missing option value" : e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        
+        if (errors == null) {
+            errors = new File(outputDir, "errors.txt");
+        }
+        
+        try {
+            BatchFiller batch = new BatchFiller(new PdfFormFiller(PdfTemplateCache.forFile(template)), outputDir, outputPattern, threads);
+            if (archiveFile != null) {
+                batch.setArchive(archiveFile, archiveFormat);
+            }
+            int failedCount = batch.run(input, errors);
+            System.exit(failedCount == 0 ? 0 : 1);
+        } catch (IOException | InterruptedException e) {
+            System.err.println("Batch failed: " + e.getMessage());
+            System.exit(2);
+        }
+    }
+    
+    /**
+     * Fill all claims of a file
+     * @return number of failed records
+     */
+    public int run(File input, File errorFile) throws IOException, InterruptedException {
+        Files.createDirectories(outputDir.toPath());
+        File errorDir = errorFile.getAbsoluteFile().getParentFile();
+        if (errorDir != null) {
+            Files.createDirectories(errorDir.toPath());
+        }
+        
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        // Bounds the number of records held in memory while the reader is ahead of the workers
+        Semaphore inFlight = new Semaphore(threads * 4);
+        long start = System.nanoTime();
+        
+        if (archiveFile != null) {
+            File archiveDir = archiveFile.getAbsoluteFile().getParentFile();
+            if (archiveDir != null) {
+                Files.createDirectories(archiveDir.toPath());
+            }
+            // Filled PDFs waiting for the writer; workers block while it is full
+            archive = new PdfArchiveWriter(archiveFile, archiveFormat, threads * 2);
+        }
+        
+        try (ClaimFileReader reader = ClaimFileReader.open(input);
+             PrintWriter errorLog = new PrintWriter(Files.newBufferedWriter(errorFile.toPath(), StandardCharsets.UTF_8))) {
+            
+            while (true) {
+                ClaimRecord claim;
+                try {
+                    claim = reader.next();
+                } catch (ClaimFileReader.ClaimFormatException e) {
+                    recordError(errorLog, reader.getRecordNumber(), "Invalid record: " + e.getMessage());
+                    failed.incrementAndGet();
+                    reportProgress();
+                    continue;
+                }
+                if (claim == null) {
+                    break;
+                }
+                
+                int recordNumber = reader.getRecordNumber();
+                inFlight.acquire();
+                workers.execute(() -> {
+                    try {
+                        fillClaim(recordNumber, claim, errorLog);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+            
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } finally {
+            workers.shutdownNow();
+            if (archive != null) {
+                archive.close();
+            }
+        }
+        
+        double seconds = (System.nanoTime() - start) / 1e9;
+        int total = succeeded.get() + failed.get();
+        System.out.println(String.format(Locale.ROOT,
+            "%d claims in %.2f s (%.1f claims/s) with %d threads, %d failed%s",
+            total, seconds, total / Math.max(seconds, 1e-9), threads, failed.get(),
+            failed.get() > 0 ? ", see " + errorFile : ""));
+        if (archive != null) {
+            System.out.println(archive.getWrittenCount() + " PDFs written to " + archiveFile);
+        }
+        
+        return failed.get();
+    }
+    
+    /**
+     * Generate the PDF for one record
+     */
+    private void fillClaim(int recordNumber, ClaimRecord claim, PrintWriter errorLog) {
+        // The dialog stores the full name as "Nachname, Vorname"; derive it the same way
+        if (claim.get(ClaimField.NAME) == null && claim.get(ClaimField.NACHNAME) != null && claim.get(ClaimField.VORNAME) != null) {
+            claim.put(ClaimField.NAME, claim.get(ClaimField.NACHNAME) + ", " + claim.get(ClaimField.VORNAME));
+        }
+        
+        String invalidField = findInvalidField(claim);
+        if (invalidField != null) {
+            recordError(errorLog, recordNumber, "Invalid value for " + invalidField + ": " + claim.get(invalidField));
+            failed.incrementAndGet();
+            reportProgress();
+            return;
+        }
+        
+        if (archive != null) {
+            fillIntoArchive(recordNumber, claim, errorLog);
+            return;
+        }
+        
+        File target = new File(outputDir, outputPattern.fileName(claim, recordNumber));
+        boolean created = false;
+        try {
+            // {nr} starts at 1 in every run; a PDF of an earlier or concurrent run into the same directory stays
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(target.toPath(), StandardOpenOption.CREATE_NEW))) {
+                created = true;
+                filler.fill(claim, out, message -> recordError(errorLog, recordNumber, message));
+            }
+            succeeded.incrementAndGet();
+        } catch (FileAlreadyExistsException e) {
+            recordError(errorLog, recordNumber, "File already exists, not replaced: " + target.getName());
+            failed.incrementAndGet();
+        } catch (Exception e) {
+            if (created) {
+                target.delete();
+            }
+            recordError(errorLog, recordNumber, "Error creating PDF: " + e.getMessage());
+            failed.incrementAndGet();
+        }
+        
+        reportProgress();
+    }
+    
+    /**
+     * Generate the PDF for one record into a buffer and queue it for the archive
+     */
+    private void fillIntoArchive(int recordNumber, ClaimRecord claim, PrintWriter errorLog) {
+        PdfBufferPool.Buffer pdf = archive.newBuffer();
+        try {
+            archiveFiller.fill(claim, pdf, message -> recordError(errorLog, recordNumber, message));
+        } catch (Exception e) {
+            archive.discard(pdf);
+            recordError(errorLog, recordNumber, "Error creating PDF: " + e.getMessage());
+            failed.incrementAndGet();
+            reportProgress();
+            return;
+        }
+        
+        try {
+            archive.submit(outputPattern.fileName(claim, recordNumber), pdf);
+            succeeded.incrementAndGet();
+        } catch (IOException e) {
+            recordError(errorLog, recordNumber, e.getMessage());
+            failed.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            recordError(errorLog, recordNumber, "Cancelled");
+            failed.incrementAndGet();
+        }
+        reportProgress();
+    }
+    
+    /**
+     * Count one finished record; called exactly once per record, so every interval is printed once
+     */
+    private void reportProgress() {
+        int done = processed.incrementAndGet();
+        if (done % PROGRESS_INTERVAL == 0) {
+            System.out.println(done + " claims processed");
+        }
+    }
+    
+    /**
+     * First field whose value the dialog would have rejected, null if all are valid
+     */
+    private static String findInvalidField(ClaimRecord claim) {
+        for (Map.Entry<String, Validator> entry : FIELD_VALIDATORS.entrySet()) {
+            String value = claim.get(entry.getKey());
+            if (value != null && !entry.getValue().test(value)) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Append one line to the error side file: record number, tab, message
+     */
+    private static void recordError(PrintWriter errorLog, int recordNumber, String message) {
+        synchronized (errorLog) {
+            errorLog.println(recordNumber + "\t" + message.replace('\n', ' '));
+        }
+    }
+}
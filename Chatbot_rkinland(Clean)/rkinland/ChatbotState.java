@@ -0,0 +1,162 @@
+package rkinland;
+
+/**
+ * Enum for chatbot states
+ * Each state is one question of the dialog, see DialogGraph for the flow between them
+ */
+public enum ChatbotState {
+    LANGUAGE_SELECTION,
+    WELCOME,
+    // Personal Data States
+    PERSONAL_NAME,
+    PERSONAL_VORNAME,
+    PERSONAL_STATUS,
+    PERSONAL_AKTENZEICHEN,
+    PERSONAL_REFERAT,
+    PERSONAL_KOSTENSTELLE,
+    PERSONAL_KOSTENTRAEGER,
+    PERSONAL_TELEFON,
+    PERSONAL_EMAIL,
+    PERSONAL_ABORDNUNG,
+    PERSONAL_STAMMBEHOERDE,
+    PERSONAL_ERSTANTRAG,
+    PERSONAL_ANSCHRIFT,
+    PERSONAL_FAMILIENWOHNORT,
+    PERSONAL_PERSONALNUMMER,
+    PERSONAL_GELDINSTITUT,
+    PERSONAL_IBAN,
+    PERSONAL_BIC,
+    
+    // Travel Data States
+    REISE_ZWECK,
+    REISE_GESCHAEFTSORT,
+    REISE_BEGINN_DATUM,
+    REISE_BEGINN_ZEIT,
+    REISE_BEGINN_ORT,
+    REISE_ANKUNFT_DATUM,
+    REISE_ANKUNFT_ZEIT,
+    REISE_BEGINN_DIENST_DATUM,
+    REISE_BEGINN_DIENST_ZEIT,
+    REISE_ENDE_DIENST_DATUM,
+    REISE_ENDE_DIENST_ZEIT,
+    REISE_ABFAHRT_DATUM,
+    REISE_ABFAHRT_ZEIT,
+    REISE_ENDE_DATUM,
+    REISE_ENDE_ZEIT,
+    REISE_ENDE_ORT,
+    REISE_PRIVATREISE,
+    REISE_PRIVATREISE_ERLAEUTERUNG,
+    REISE_TELEARBEIT,
+    REISE_TELEARBEIT_ERLAEUTERUNG,
+    REISE_ABRECHNUNGSSTELLE,
+    
+    // Transport States
+    VERKEHRSMITTEL_AUSWAHL,
+    
+    // Transport Detail States
+    VERKEHR_PRIVATKFZ_WEGSTRECKENART,
+    VERKEHR_PRIVATKFZ_KILOMETER,
+    VERKEHR_PRIVATKFZ_STRECKE,
+    
+    VERKEHR_MITFAHRER_NAME,
+    
+    VERKEHR_MIETWAGEN_BUCHUNG,
+    VERKEHR_MIETWAGEN_KOSTEN,
+    VERKEHR_MIETWAGEN_BENZIN,
+    VERKEHR_MIETWAGEN_BEGRUENDUNG,
+    
+    VERKEHR_BAHN_BUCHUNG,
+    VERKEHR_BAHN_BAHNCARD,
+    VERKEHR_BAHN_BAHNCARD_TYP,
+    VERKEHR_BAHN_BAHNCARD_WERT,
+    VERKEHR_BAHN_BAHNCARD_KLASSE,
+    VERKEHR_BAHN_BONUS,
+    VERKEHR_BAHN_BONUS_NAME,
+    VERKEHR_BAHN_HINFAHRT,
+    VERKEHR_BAHN_RUECKFAHRT,
+    VERKEHR_BAHN_VORGABEN,
+    
+    VERKEHR_FLUG_BUCHUNG,
+    VERKEHR_FLUG_KOSTEN,
+    VERKEHR_FLUG_BEGRUENDUNG,
+    VERKEHR_FLUG_BONUS,
+    VERKEHR_FLUG_BONUS_NAME,
+    
+    VERKEHR_OEPNV_ANZAHL,
+    VERKEHR_OEPNV_KOSTEN,
+    VERKEHR_OEPNV_GRUND,
+    
+    VERKEHR_TAXI_ANTRAG,
+    VERKEHR_TAXI_ANZAHL,
+    VERKEHR_TAXI_KOSTEN,
+    VERKEHR_TAXI_GRUND,
+    
+    VERKEHR_FAHRRAD_ANZAHL,
+    VERKEHR_FAHRRAD_PAUSCHALE,
+    
+    VERKEHR_SONSTIGES_ART,
+    VERKEHR_SONSTIGES_ANZAHL,
+    VERKEHR_SONSTIGES_KOSTEN,
+    VERKEHR_SONSTIGES_GRUND,
+    
+    // Accommodation States
+    UEBERNACHTUNG,
+    UEBERNACHTUNG_UNENTGELTLICH,
+    UEBERNACHTUNG_UNTERKUNFT,
+    UEBERNACHTUNG_UNTERKUNFT_VON,
+    UEBERNACHTUNG_UNTERKUNFT_BIS,
+    UEBERNACHTUNG_FRUEHSTUECK,
+    UEBERNACHTUNG_FRUEHSTUECK_VON,
+    UEBERNACHTUNG_FRUEHSTUECK_BIS,
+    UEBERNACHTUNG_MITTAGESSEN,
+    UEBERNACHTUNG_MITTAGESSEN_VON,
+    UEBERNACHTUNG_MITTAGESSEN_BIS,
+    UEBERNACHTUNG_ABENDESSEN,
+    UEBERNACHTUNG_ABENDESSEN_VON,
+    UEBERNACHTUNG_ABENDESSEN_BIS,
+    UEBERNACHTUNG_HOTEL,
+    UEBERNACHTUNG_HOTEL_ANZAHL,
+    UEBERNACHTUNG_HOTEL1_NAME,
+    UEBERNACHTUNG_HOTEL1_ORT,
+    UEBERNACHTUNG_HOTEL1_VON,
+    UEBERNACHTUNG_HOTEL1_BIS,
+    UEBERNACHTUNG_HOTEL1_KOSTEN,
+    UEBERNACHTUNG_HOTEL1_FRUEHSTUECK,
+    UEBERNACHTUNG_HOTEL2_NAME,
+    UEBERNACHTUNG_HOTEL2_ORT,
+    UEBERNACHTUNG_HOTEL2_VON,
+    UEBERNACHTUNG_HOTEL2_BIS,
+    UEBERNACHTUNG_HOTEL2_KOSTEN,
+    UEBERNACHTUNG_HOTEL2_FRUEHSTUECK,
+    UEBERNACHTUNG_HOTEL_RECHNUNG,
+    UEBERNACHTUNG_HOTEL_BUCHUNG,
+    UEBERNACHTUNG_HOTEL_TMS,
+    UEBERNACHTUNG_HOTEL_PREISGRENZE,
+    UEBERNACHTUNG_HOTEL_PREISGRENZE_GRUND,
+    UEBERNACHTUNG_HOTEL_DOPPELZIMMER,
+    UEBERNACHTUNG_WOHNUNG,
+    UEBERNACHTUNG_WOHNUNG_BETRETEN,
+    UEBERNACHTUNG_WOHNUNG_VERLASSEN,
+    UEBERNACHTUNG_WOHNUNG_GESCHAEFTSORT,
+    UEBERNACHTUNG_WOHNUNG_GESCHAEFTSORT_BETRETEN,
+    UEBERNACHTUNG_WOHNUNG_GESCHAEFTSORT_VERLASSEN,
+    UEBERNACHTUNG_PRIVAT,
+    UEBERNACHTUNG_BEFOERDERUNG,
+    UEBERNACHTUNG_KOSTEN_ENTHALTEN,
+    
+    // Additional Information States
+    ZUSATZ_LEISTUNG_DRITTE,
+    ZUSATZ_LEISTUNG_DRITTE_HOEHE,
+    ZUSATZ_NEBENTAETIGKEIT,
+    ZUSATZ_ABSCHLAG,
+    ZUSATZ_ABSCHLAG_HOEHE,
+    ZUSATZ_ERGAENZENDE_AUSFUEHRUNGEN,
+    ZUSATZ_BELEGE,
+    ZUSATZ_MUENDLICH_GENEHMIGT,
+    ZUSATZ_UNTERSCHRIFT_ORT,
+    ZUSATZ_UNTERSCHRIFT_DATUM,
+    
+    // Final States
+    ABSCHLUSS_PDF,
+    DONE
+}
@@ -0,0 +1,250 @@
+package rkinland;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fields of a travel expense claim, with the key used in the dialog's form data and in claim files
+ * The type decides how ClaimRecord stores the value: flags as bits, amounts as cents,
+ * dates as epoch days, times as minutes of the day, everything else as text.
+ */
+public enum ClaimField {
+    // Personal data
+    BEHOERDE("behörde", Type.TEXT),
+    NACHNAME("nachname", Type.TEXT),
+    VORNAME("vorname", Type.TEXT),
+    NAME("name", Type.TEXT),
+    BEAMTER("beamter", Type.FLAG),
+    TARIF_B("tarifB", Type.FLAG),
+    ANWAERTER("anwärter", Type.FLAG),
+    AZUBI("azubi", Type.FLAG),
+    AKTENZEICHEN("aktenzeichen", Type.TEXT),
+    REFERAT("referat", Type.TEXT),
+    KOSTENSTELLE("kostenstelle", Type.TEXT),
+    KOSTENTRAEGER("kostenträger", Type.TEXT),
+    TELEFON("telefon", Type.TEXT),
+    EMAIL("email", Type.TEXT),
+    ABORDNUNG("abordnung", Type.FLAG),
+    STAMM_BEHOERDE("stammBehörde", Type.TEXT),
+    ANSCHRIFT("anschrift", Type.TEXT),
+    FAMILIENWOHNORT("familienwohnort", Type.TEXT),
+    PERSONAL_NR("personalNr", Type.TEXT),
+    GELDINSTITUT("geldinstitut", Type.TEXT),
+    IBAN("iban", Type.TEXT),
+    BIC("bic", Type.TEXT),
+    
+    // Travel data
+    ZWECK("zweck", Type.TEXT),
+    GESCHAEFTSORT("geschäftsort", Type.TEXT),
+    BEGINN_REISE_DATUM("beginnReiseDatum", Type.DATE),
+    BEGINN_REISE_ZEIT("beginnReiseZeit", Type.TIME),
+    BEGINN_WOHNUNG("beginnWohnung", Type.FLAG),
+    BEGINN_DIENSTSTELLE("beginnDienststelle", Type.FLAG),
+    BEGINN_VORUEBERGEHEND("beginnVorübergehend", Type.FLAG),
+    ANKUNFT_DATUM("ankunftDatum", Type.DATE),
+    ANKUNFT_UHRZEIT("ankunftUhrzeit", Type.TIME),
+    BEGINN_DIENST_DATUM("beginnDienstDatum", Type.DATE),
+    BEGINN_DIENST_UHRZEIT("beginnDienstUhrzeit", Type.TIME),
+    ENDE_DIENST_DATUM("endeDienstDatum", Type.DATE),
+    ENDE_DIENST_UHRZEIT("endeDienstUhrzeit", Type.TIME),
+    ABFAHRT_DATUM("abfahrtDatum", Type.DATE),
+    ABFAHRT_UHRZEIT("abfahrtUhrzeit", Type.TIME),
+    ENDE_REISE_DATUM("endeReiseDatum", Type.DATE),
+    ENDE_REISE_ZEIT("endeReiseZeit", Type.TIME),
+    ENDE_WOHNUNG("endeWohnung", Type.FLAG),
+    ENDE_DIENSTSTELLE("endeDienststelle", Type.FLAG),
+    ENDE_VORUEBERGEHEND("endeVorübergehend", Type.FLAG),
+    PRIVATREISE("privatreise", Type.FLAG),
+    PRIVATREISE_ERLAEUTERUNG("privatreiseErläuterung", Type.TEXT),
+    TELEARBEIT("telearbeit", Type.FLAG),
+    TELEARBEIT_ERLAEUTERUNG("telearbeitErläuterung", Type.TEXT),
+    AS_BERLIN("AsBerlin", Type.FLAG),
+    AS_HAMM("AsHamm", Type.FLAG),
+    AS_OSNABRUECK("AsOsnabrück", Type.FLAG),
+    
+    // Transport
+    DIENST_KFZ("dienstKfz", Type.FLAG),
+    PRIVAT_KFZ("privatKfz", Type.FLAG),
+    MITFAHRER("mitfahrer", Type.FLAG),
+    MIETWAGEN("mietwagen", Type.FLAG),
+    BAHN("bahn", Type.FLAG),
+    FLUG("flug", Type.FLAG),
+    OEPNV("öpnv", Type.FLAG),
+    TAXI("taxi", Type.FLAG),
+    FAHRRAD("fahrrad", Type.FLAG),
+    ANDERE_VERKEHRSMITTEL("andereVerkehrsmittel", Type.FLAG),
+    KFZ_KLEINE_WECHECK("KfzKleineWECheck", Type.FLAG),
+    KFZ_GROSSE_WECHECK("KfzGrosseWECheck", Type.FLAG),
+    KFZ_GROSSE_WEANZAHL_KM("KfzGrosseWEAnzahlKm", Type.TEXT),
+    KFZ_KLEINE_WEANZAHL_KM("KfzKleineWEAnzahlKm", Type.TEXT),
+    KFZ_GROSSE_WEORT("KfzGrosseWEOrt", Type.TEXT),
+    KFZ_KLEINE_WEORT("KfzKleineWEOrt", Type.TEXT),
+    MITFAHRER_NAME("mitfahrerName", Type.TEXT),
+    MIETWAGEN_RV("mietwagenRV", Type.FLAG),
+    MIETWAGEN_SELBST("mietwagenSelbst", Type.FLAG),
+    MIETKOSTEN("Mietkosten", Type.AMOUNT),
+    BENZINKOSTEN("Benzinkosten", Type.AMOUNT),
+    MIETWAGEN_BEGRUENDUNG("MietwagenBegründung", Type.TEXT),
+    BAHN_RV("bahnRV", Type.FLAG),
+    BAHN_SELBST("bahnSelbst", Type.FLAG),
+    BAHNCARD_VORHANDEN("bahncardVorhanden", Type.FLAG),
+    BAHNCARD_PRIVAT("bahncardPrivat", Type.FLAG),
+    BAHNCARD_BUSINESS("bahncardBusiness", Type.FLAG),
+    BAHNCARD_25("bahncard25", Type.FLAG),
+    BAHNCARD_50("bahncard50", Type.FLAG),
+    BAHNCARD_100("bahncard100", Type.FLAG),
+    KLASSE_1("klasse1", Type.FLAG),
+    KLASSE_2("klasse2", Type.FLAG),
+    BAHN_BONUS("bahnBonus", Type.FLAG),
+    BAHN_BONUS_NAME("bahnBonusName", Type.TEXT),
+    BAHN_HINFAHRT("BahnHinfahrt", Type.AMOUNT),
+    BAHN_RUECKFAHRT("BahnRückfahrt", Type.AMOUNT),
+    BAHN_REISEKOSTEN_VORGABEN("BahnReisekostenVorgaben", Type.FLAG),
+    FLUG_RV("flugRV", Type.FLAG),
+    FLUG_SELBST("flugSelbst", Type.FLAG),
+    FLUG_KOSTEN("FlugKosten", Type.AMOUNT),
+    FLUG_BEGRUENDUNG("FlugBegründung", Type.TEXT),
+    FLUG_BONUS_PROGRAMM("flugBonusProgramm", Type.FLAG),
+    FLUG_BONUS_NAME("flugBonusName", Type.TEXT),
+    OEPNV_ANZAHL("öpnvAnzahl", Type.TEXT),
+    OEPNV_KOSTEN("öpnvKosten", Type.AMOUNT),
+    OEPNV_GRUND("öpnvGrund", Type.TEXT),
+    TAXI_ANTRAG("taxiAntrag", Type.FLAG),
+    TAXI_ANZAHL("taxiAnzahl", Type.TEXT),
+    TAXI_KOSTEN("taxiKosten", Type.AMOUNT),
+    TAXI_GRUND("taxiGrund", Type.TEXT),
+    FAHRRAD_ANZAHL("fahrradAnzahl", Type.TEXT),
+    FAHRRAD_PAUSCHALE("fahrradPauschale", Type.FLAG),
+    ANDERE_VERKEHRSMITTEL_TEXT("AndereVerkehrsmittelText", Type.TEXT),
+    SONSTIGE_KOSTEN_ANZAHL("SonstigeKostenAnzahl", Type.TEXT),
+    SONSTIGE_KOSTEN_KOSTEN("SonstigeKostenKosten", Type.AMOUNT),
+    SONSTIGE_KOSTEN_GRUND("SonstigeKostenGrund", Type.TEXT),
+    
+    // Accommodation
+    UNTERKUNFT_UNENTGELTLICH_JA("unterkunftUnentgeltlichJa", Type.FLAG),
+    UNTERKUNFT_UNENTGELTLICH_NEIN("unterkunftUnentgeltlichNein", Type.FLAG),
+    UNTERKUNFT_VON("UnterkunftVon", Type.DATE),
+    UNTERKUNFT_BIS("UnterkunftBis", Type.DATE),
+    FRUEHSTUECK_VON("FrühstückVon", Type.DATE),
+    FRUEHSTUECK_BIS("FrühstückBis", Type.DATE),
+    MITTAGESSEN_VON("MittagessenVon", Type.DATE),
+    MITTAGESSEN_BIS("MittagessenBis", Type.DATE),
+    ABENDESSEN_VON("AbendessenVon", Type.DATE),
+    ABENDESSEN_BIS("AbendessenBis", Type.DATE),
+    HOTEL_NAME_1("HotelName1", Type.TEXT),
+    UEBERNACHTUNG_ORT_1("ÜbernachtungOrt1", Type.TEXT),
+    UEBERNACHTUNG_VON_1("ÜbernachtungVon1", Type.DATE),
+    UEBERNACHTUNG_BIS_1("ÜbernachtungBis1", Type.DATE),
+    HOTEL_KOSTEN_1("HotelKosten1", Type.AMOUNT),
+    MIT_FRUEHSTUECK_1("MitFrühstück1", Type.FLAG),
+    OHNE_FRUEHSTUECK_1("OhneFrühstück1", Type.FLAG),
+    HOTEL_NAME_2("HotelName2", Type.TEXT),
+    UEBERNACHTUNG_ORT_2("ÜbernachtungOrt2", Type.TEXT),
+    UEBERNACHTUNG_VON_2("ÜbernachtungVon2", Type.DATE),
+    UEBERNACHTUNG_BIS_2("ÜbernachtungBis2", Type.DATE),
+    HOTEL_KOSTEN_2("HotelKosten2", Type.AMOUNT),
+    MIT_FRUEHSTUECK_2("MitFrühstück2", Type.FLAG),
+    OHNE_FRUEHSTUECK_2("OhneFrühstück2", Type.FLAG),
+    BUCHUNG_RECHNUNG("BuchungRechnung", Type.FLAG),
+    BUCHUNG_RV("BuchungRv", Type.FLAG),
+    BUCHUNG_REISENDEN("BuchungReisenden", Type.FLAG),
+    BUCHUNG_ANDERE_STELLE("BuchungAndereStelle", Type.FLAG),
+    BUCHUNG_TMS("BuchungTMS", Type.FLAG),
+    BUCHUNG_PREISGRENZE("BuchungPreisgrenze", Type.FLAG),
+    BUCHUNG_PREISGRENZE_GRUND("BuchungPreisgrenzeGrund", Type.TEXT),
+    DOPPELZIMMER_MIT_ANDEREN("DoppelzimmerMitAnderen", Type.FLAG),
+    UEBERNACHTUNG_WOHNUNG_AUS("ÜbernachtungWohnungAus", Type.FLAG),
+    UEBERNACHTUNG_WOHNUNG_AUS_BETRETEN("ÜbernachtungWohnungAusBetreten", Type.TEXT),
+    UEBERNACHTUNG_WOHNUNG_AUS_VERLASSEN("ÜbernachtungWohnungAusVerlassen", Type.TEXT),
+    UEBERNACHTUNG_WOHNUNG_AM("ÜbernachtungWohnungAm", Type.FLAG),
+    UEBERNACHTUNG_WOHNUNG_AM_BETRETEN("ÜbernachtungWohnungAmBetreten", Type.TEXT),
+    UEBERNACHTUNG_WOHNUNG_AM_VERLASSEN("ÜbernachtungWohnungAmVerlassen", Type.TEXT),
+    PRIVATE_UEBERNACHTUNG("PrivateÜbernachtung", Type.FLAG),
+    UEBERNACHTUNG_IN_BEFOERDERUNG("ÜbernachtungInBeförderung", Type.FLAG),
+    UEBERNACHTUNGS_KOSTEN_ENTHALTEN("ÜbernachtungsKostenEnthalten", Type.FLAG),
+    
+    // Additional information
+    LEISTUNG_VON_DRITTEN("LeistungVonDritten", Type.FLAG),
+    LEISTUNG_VON_DRITTEN_HOEHE("LeistungVonDrittenHöhe", Type.AMOUNT),
+    IN_VERBINDUNGMIT_NEBEN("InVerbindungmitNeben", Type.FLAG),
+    ABSCHLAG("Abschlag", Type.FLAG),
+    ABSCHLAG_HOEHE("AbschlagHöhe", Type.AMOUNT),
+    ERGAENZENDE_AUSFUEHRUNGEN("ErgänzendeAusführungen", Type.TEXT),
+    BELEGE("Belege", Type.FLAG),
+    MUENDLICH_GENEHMIGT_JA("MündlichGenehmigtJa", Type.FLAG),
+    MUENDLICH_GENEHMIGT_NEIN("MündlichGenehmigtNein", Type.FLAG),
+    UNTERSCHRIFT_ORT("UnterschriftOrt", Type.TEXT),
+    UNTERSCHRIFT_DATUM("UnterschriftDatum", Type.DATE),
+    
+    // Form fields the dialog does not ask for (batch input)
+    PARKGEBUEHREN_ANZAHL("parkgebuehrenAnzahl", Type.TEXT),
+    PARKGEBUEHREN_KOSTEN("parkgebuehrenKosten", Type.AMOUNT),
+    DIENSTORT("dienstort", Type.TEXT),
+    PARKGEBUEHREN("parkgebuehren", Type.FLAG),
+    SONSTIGE_KOSTEN("SonstigeKosten", Type.FLAG),
+    PARKGEBUEHREN_GRUND("parkgebuehrenGrund", Type.TEXT),
+    FAHRRAD_GRUND("fahrradGrund", Type.TEXT);
+    
+    /**
+     * Storage type of a field value
+     */
+    public enum Type {
+        /** Checkbox, the value "Yes" */
+        FLAG,
+        /** Free text */
+        TEXT,
+        /** Money amount like 89,90 */
+        AMOUNT,
+        /** Date in the format DD.MM.YYYY */
+        DATE,
+        /** Time in the format HH:MM */
+        TIME
+    }
+    
+    private static final Map<String, ClaimField> BY_KEY = new HashMap<>();
+    
+    // Position of each field within the storage array of its type
+    private static final int[] TYPE_COUNTS = new int[Type.values().length];
+    
+    static {
+        for (ClaimField field : values()) {
+            BY_KEY.put(field.key, field);
+            field.slot = TYPE_COUNTS[field.type.ordinal()]++;
+        }
+    }
+    
+    private final String key;
+    private final Type type;
+    private int slot;
+    
+    ClaimField(String key, Type type) {
+        this.key = key;
+        this.type = type;
+    }
+    
+    /**
+     * Key of the field in the form data, e.g. "behörde"
+     */
+    public String getKey() {
+        return key;
+    }
+    
+    public Type getType() {
+        return type;
+    }
+    
+    int slot() {
+        return slot;
+    }
+    
+    static int count(Type type) {
+        return TYPE_COUNTS[type.ordinal()];
+    }
+    
+    /**
+     * Field for a form data key, null if the key is not a known field
+     */
+    public static ClaimField forKey(String key) {
+        return BY_KEY.get(key);
+    }
+}
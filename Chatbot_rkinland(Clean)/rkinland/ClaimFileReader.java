@@ -0,0 +1,340 @@
+package rkinland;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming reader for claim files used by the batch mode
+ * Every record is one claim, keyed by the same formData keys the chatbot dialog uses
+ * (behörde, beginnReiseDatum, HotelKosten1, ...). Two formats are supported:
+ * CSV with a header row (separator ; or , is detected from the header) and JSONL with
+ * one flat JSON object per line. Empty values are left out of the record.
+ */
+public abstract class ClaimFileReader implements Closeable {
+    
+    protected final BufferedReader in;
+    private int recordNumber;
+    
+    protected ClaimFileReader(BufferedReader in) {
+        this.in = in;
+    }
+    
+    /**
+     * Open a claim file, choosing the format from the file extension (.jsonl/.json, otherwise CSV)
+     */
+    public static ClaimFileReader open(File file) throws IOException {
+        BufferedReader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8);
+        String name = file.getName().toLowerCase();
+        
+        if (name.endsWith(".jsonl") || name.endsWith(".json")) {
+            return new JsonLines(in);
+        }
+        return new Csv(in);
+    }
+    
+    /**
+     * Read the next claim
+     * @return the claim data, or null at the end of the file
+     * @throws ClaimFormatException if the record cannot be parsed; reading can continue with the next record
+     */
+    public ClaimRecord next() throws IOException {
+        ClaimRecord record;
+        try {
+            record = readRecord();
+        } catch (ClaimFormatException e) {
+            // A malformed record still counts, so later record numbers stay right
+            recordNumber++;
+            throw e;
+        }
+        if (record != null) {
+            recordNumber++;
+        }
+        return record;
+    }
+    
+    /**
+     * Number of the record returned by the last call of next() (1-based)
+     */
+    public int getRecordNumber() {
+        return recordNumber;
+    }
+    
+    protected abstract ClaimRecord readRecord() throws IOException;
+    
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+    
+    /**
+     * Signals a malformed record
+     */
+    public static class ClaimFormatException extends IOException {
+        private static final long serialVersionUID = 1L;
+        
+        public ClaimFormatException(String message) {
+            super(message);
+        }
+    }
+    
+    /**
+     * CSV reader with header row, quoted fields ("" as escaped quote) and line breaks inside quotes
+     */
+    private static final class Csv extends ClaimFileReader {
+        private String[] header;
+        private char separator;
+        
+        Csv(BufferedReader in) {
+            super(in);
+        }
+        
+        @Override
+        protected ClaimRecord readRecord() throws IOException {
+            if (header == null) {
+                String headerLine = in.readLine();
+                if (headerLine == null) {
+                    return null;
+                }
+                // Strip a UTF-8 byte order mark written by spreadsheet programs
+                if (!headerLine.isEmpty() && headerLine.charAt(0) == '\uFEFF') {
+                    headerLine = headerLine.substring(1);
+                }
+                separator = headerLine.indexOf(';') >= 0 ? ';' : ',';
+                List<String> columns = parseLine(headerLine);
+                header = new String[columns.size()];
+                for (int i = 0; i < header.length; i++) {
+                    header[i] = columns.get(i).trim();
+                }
+            }
+            
+            String line;
+            do {
+                line = in.readLine();
+                if (line == null) {
+                    return null;
+                }
+            } while (line.trim().isEmpty());
+            
+            List<String> values = parseLine(line);
+            if (values.size() > header.length) {
+                throw new ClaimFormatException("Record has " + values.size() + " columns, header has " + header.length);
+            }
+            
+            ClaimRecord record = new ClaimRecord();
+            for (int i = 0; i < values.size(); i++) {
+                String value = values.get(i);
+                if (!value.isEmpty()) {
+                    record.put(header[i], value);
+                }
+            }
+            return record;
+        }
+        
+        /**
+         * Split one record, reading continuation lines while a quoted field is open
+         */
+        private List<String> parseLine(String line) throws IOException {
+            List<String> values = new ArrayList<>();
+            StringBuilder value = new StringBuilder();
+            boolean quoted = false;
+            int i = 0;
+            
+            while (true) {
+                if (i >= line.length()) {
+                    if (!quoted) {
+                        break;
+                    }
+                    // Quoted field continues on the next line
+                    String next = in.readLine();
+                    if (next == null) {
+                        throw new ClaimFormatException("Unterminated quoted field");
+                    }
+                    value.append('\n');
+                    line = next;
+                    i = 0;
+                    continue;
+                }
+                
+                char c = line.charAt(i++);
+                if (quoted) {
+                    if (c == '"') {
+                        if (i < line.length() && line.charAt(i) == '"') {
+                            value.append('"');
+                            i++;
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        value.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == separator) {
+                    values.add(value.toString());
+                    value.setLength(0);
+                } else {
+                    value.append(c);
+                }
+            }
+            
+            values.add(value.toString());
+            return values;
+        }
+    }
+    
+    /**
+     * JSONL reader for flat objects; strings are taken as they are, true becomes "Yes",
+     * false and null are left out, numbers keep their literal text
+     */
+    private static final class JsonLines extends ClaimFileReader {
+        private String line;
+        private int pos;
+        
+        JsonLines(BufferedReader in) {
+            super(in);
+        }
+        
+        @Override
+        protected ClaimRecord readRecord() throws IOException {
+            do {
+                line = in.readLine();
+                if (line == null) {
+                    return null;
+                }
+                line = line.trim();
+            } while (line.isEmpty());
+            
+            pos = 0;
+            ClaimRecord record = new ClaimRecord();
+            
+            expect('{');
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+                return record;
+            }
+            
+            while (true) {
+                skipWhitespace();
+                String key = readString();
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+                String value = readValue();
+                if (value != null && !value.isEmpty()) {
+                    record.put(key, value);
+                }
+                skipWhitespace();
+                char c = nextChar();
+                if (c == '}') {
+                    break;
+                }
+                if (c != ',') {
+                    throw new ClaimFormatException("Expected ',' or '}' at position " + pos);
+                }
+            }
+            
+            skipWhitespace();
+            if (pos != line.length()) {
+                throw new ClaimFormatException("Unexpected content after object at position " + pos);
+            }
+            return record;
+        }
+        
+        private String readValue() throws IOException {
+            char c = peek();
+            if (c == '"') {
+                return readString();
+            }
+            
+            int start = pos;
+            while (pos < line.length() && ",} \t".indexOf(line.charAt(pos)) < 0) {
+                pos++;
+            }
+            String literal = line.substring(start, pos);
+            
+            switch (literal) {
+                case "true":
+                    return "Yes";
+                case "false":
+                case "null":
+                    return null;
+                default:
+                    if (literal.isEmpty() || c == '{' || c == '[') {
+                        throw new ClaimFormatException("Only flat objects with string, number or boolean values are supported");
+                    }
+                    return literal;
+            }
+        }
+        
+        private String readString() throws IOException {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            
+            while (true) {
+                char c = nextChar();
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                
+                char escaped = nextChar();
+                switch (escaped) {
+                    case 'n': value.append('\n'); break;
+                    case 't': value.append('\t'); break;
+                    case 'r': value.append('\r'); break;
+                    case 'b': value.append('\b'); break;
+                    case 'f': value.append('\f'); break;
+                    case 'u':
+                        if (pos + 4 > line.length()) {
+                            throw new ClaimFormatException("Truncated unicode escape");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(line.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw new ClaimFormatException("Invalid unicode escape at position " + pos);
+                        }
+                        pos += 4;
+                        break;
+                    default:
+                        value.append(escaped);
+                        break;
+                }
+            }
+        }
+        
+        private void skipWhitespace() {
+            while (pos < line.length() && Character.isWhitespace(line.charAt(pos))) {
+                pos++;
+            }
+        }
+        
+        private char peek() throws IOException {
+            if (pos >= line.length()) {
+                throw new ClaimFormatException("Unexpected end of line");
+            }
+            return line.charAt(pos);
+        }
+        
+        private char nextChar() throws IOException {
+            char c = peek();
+            pos++;
+            return c;
+        }
+        
+        private void expect(char expected) throws IOException {
+            if (nextChar() != expected) {
+                throw new ClaimFormatException("Expected '" + expected + "' at position " + (pos - 1));
+            }
+        }
+    }
+}
@@ -0,0 +1,511 @@
+package rkinland;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Data of one travel expense claim, stored by ClaimField instead of a HashMap of strings
+ * Flags are bits, amounts are cents, dates are epoch days and times are minutes of the day;
+ * texts sit in an array indexed by the field. A value is only stored typed if it prints back
+ * exactly as given, anything else (e.g. "89,9" or "No" for a flag) and keys that are not a
+ * ClaimField are kept verbatim. asMap() gives the familiar view with the form data keys.
+ * Not thread-safe.
+ */
+public final class ClaimRecord {
+    
+    /** Value of a set flag in the form data */
+    public static final String YES = "Yes";
+    
+    /** Returned by getAmountCents if the field has no amount */
+    public static final long NO_AMOUNT = Long.MIN_VALUE;
+    
+    private static final int NO_VALUE = Integer.MIN_VALUE;
+    
+    // Longest integer part that still fits into a long of cents
+    private static final int MAX_AMOUNT_DIGITS = 15;
+    
+    private final BitSet flags = new BitSet(ClaimField.count(ClaimField.Type.FLAG));
+    private final String[] texts = new String[ClaimField.count(ClaimField.Type.TEXT)];
+    private final long[] amounts = new long[ClaimField.count(ClaimField.Type.AMOUNT)];
+    // Amounts given without decimal places, e.g. "120"
+    private final BitSet wholeAmounts = new BitSet(amounts.length);
+    private final int[] dates = new int[ClaimField.count(ClaimField.Type.DATE)];
+    private final int[] times = new int[ClaimField.count(ClaimField.Type.TIME)];
+    
+    // Values that are not stored typed, created on first use
+    private Map<String, String> verbatim;
+    private int size;
+    
+    private Map<String, String> mapView;
+    
+    public ClaimRecord() {
+        Arrays.fill(amounts, NO_AMOUNT);
+        Arrays.fill(dates, NO_VALUE);
+        Arrays.fill(times, NO_VALUE);
+    }
+    
+    /**
+     * Record with all entries of a form data map
+     */
+    public static ClaimRecord of(Map<String, String> formData) {
+        ClaimRecord claim = new ClaimRecord();
+        for (Map.Entry<String, String> entry : formData.entrySet()) {
+            claim.put(entry.getKey(), entry.getValue());
+        }
+        return claim;
+    }
+    
+    /**
+     * Independent copy, e.g. as snapshot for a PDF generated in the background
+     */
+    public ClaimRecord copy() {
+        ClaimRecord copy = new ClaimRecord();
+        copy.flags.or(flags);
+        System.arraycopy(texts, 0, copy.texts, 0, texts.length);
+        System.arraycopy(amounts, 0, copy.amounts, 0, amounts.length);
+        copy.wholeAmounts.or(wholeAmounts);
+        System.arraycopy(dates, 0, copy.dates, 0, dates.length);
+        System.arraycopy(times, 0, copy.times, 0, times.length);
+        if (verbatim != null) {
+            copy.verbatim = new LinkedHashMap<>(verbatim);
+        }
+        copy.size = size;
+        return copy;
+    }
+    
+    /**
+     * Value as it appears in the form data, null if not set
+     */
+    public String get(ClaimField field) {
+        int slot = field.slot();
+        switch (field.getType()) {
+            case FLAG:
+                return flags.get(slot) ? YES : verbatim(field.getKey());
+            case TEXT:
+                return texts[slot];
+            case AMOUNT:
+                return amounts[slot] != NO_AMOUNT ? formatAmount(amounts[slot], wholeAmounts.get(slot)) : verbatim(field.getKey());
+            case DATE:
+                return dates[slot] != NO_VALUE ? formatDate(dates[slot]) : verbatim(field.getKey());
+            default:
+                return times[slot] != NO_VALUE ? formatTime(times[slot]) : verbatim(field.getKey());
+        }
+    }
+    
+    /**
+     * Value for a form data key, also for keys that are no ClaimField
+     */
+    public String get(String key) {
+        ClaimField field = ClaimField.forKey(key);
+        return field != null ? get(field) : verbatim(key);
+    }
+    
+    /**
+     * True if the field has the value "Yes", e.g. a ticked checkbox
+     */
+    public boolean isSet(ClaimField field) {
+        if (field.getType() == ClaimField.Type.FLAG) {
+            return flags.get(field.slot());
+        }
+        return YES.equals(get(field));
+    }
+    
+    /**
+     * Amount in cents, NO_AMOUNT if the field is not set or not a plain amount like 89,90
+     */
+    public long getAmountCents(ClaimField field) {
+        return field.getType() == ClaimField.Type.AMOUNT ? amounts[field.slot()] : NO_AMOUNT;
+    }
+    
+    /**
+     * Date of a date field, null if not set or not a valid calendar date
+     */
+    public LocalDate getDate(ClaimField field) {
+        if (field.getType() != ClaimField.Type.DATE || dates[field.slot()] == NO_VALUE) {
+            return null;
+        }
+        return LocalDate.ofEpochDay(dates[field.slot()]);
+    }
+    
+    /**
+     * Set a field; null removes it
+     */
+    public void put(ClaimField field, String value) {
+        remove(field);
+        if (value == null) {
+            return;
+        }
+        
+        size++;
+        int slot = field.slot();
+        switch (field.getType()) {
+            case FLAG:
+                if (YES.equals(value)) {
+                    flags.set(slot);
+                    return;
+                }
+                break;
+            case TEXT:
+                texts[slot] = value;
+                return;
+            case AMOUNT:
+                long cents = parseAmount(value);
+                if (cents != NO_AMOUNT) {
+                    amounts[slot] = cents;
+                    wholeAmounts.set(slot, value.indexOf(',') < 0);
+                    return;
+                }
+                break;
+            case DATE:
+                int epochDay = parseDate(value);
+                if (epochDay != NO_VALUE) {
+                    dates[slot] = epochDay;
+                    return;
+                }
+                break;
+            default:
+                int minutes = parseTime(value);
+                if (minutes != NO_VALUE) {
+                    times[slot] = minutes;
+                    return;
+                }
+                break;
+        }
+        putVerbatim(field.getKey(), value);
+    }
+    
+    /**
+     * Set a value by form data key; keys that are no ClaimField are kept as they are
+     */
+    public void put(String key, String value) {
+        ClaimField field = ClaimField.forKey(key);
+        if (field != null) {
+            put(field, value);
+        } else if (value == null) {
+            remove(key);
+        } else {
+            if (verbatim(key) == null) {
+                size++;
+            }
+            putVerbatim(key, value);
+        }
+    }
+    
+    /**
+     * Clear a field
+     */
+    public void remove(ClaimField field) {
+        if (get(field) == null) {
+            return;
+        }
+        
+        size--;
+        int slot = field.slot();
+        switch (field.getType()) {
+            case FLAG:
+                flags.clear(slot);
+                break;
+            case TEXT:
+                texts[slot] = null;
+                break;
+            case AMOUNT:
+                amounts[slot] = NO_AMOUNT;
+                wholeAmounts.clear(slot);
+                break;
+            case DATE:
+                dates[slot] = NO_VALUE;
+                break;
+            default:
+                times[slot] = NO_VALUE;
+                break;
+        }
+        if (verbatim != null) {
+            verbatim.remove(field.getKey());
+        }
+    }
+    
+    private void remove(String key) {
+        ClaimField field = ClaimField.forKey(key);
+        if (field != null) {
+            remove(field);
+        } else if (verbatim != null && verbatim.remove(key) != null) {
+            size--;
+        }
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    /**
+     * Live view with the form data keys; changes go through to the record
+     * Iteration follows the order of ClaimField, then the other keys in insertion order.
+     */
+    public Map<String, String> asMap() {
+        if (mapView == null) {
+            mapView = new MapView();
+        }
+        return mapView;
+    }
+    
+    /**
+     * Values of keys that are no ClaimField, in insertion order
+     */
+    public Map<String, String> otherFields() {
+        if (verbatim == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> others = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : verbatim.entrySet()) {
+            if (ClaimField.forKey(entry.getKey()) == null) {
+                others.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return others;
+    }
+    
+    private String verbatim(String key) {
+        return verbatim != null ? verbatim.get(key) : null;
+    }
+    
+    private void putVerbatim(String key, String value) {
+        if (verbatim == null) {
+            verbatim = new LinkedHashMap<>();
+        }
+        verbatim.put(key, value);
+    }
+    
+    /**
+     * Cents of an amount written as digits with optional two decimal places (120 or 89,90),
+     * NO_AMOUNT for any other notation
+     */
+    static long parseAmount(String value) {
+        int comma = value.indexOf(',');
+        int integerDigits = comma < 0 ? value.length() : comma;
+        if (integerDigits == 0 || integerDigits > MAX_AMOUNT_DIGITS
+                || (integerDigits > 1 && value.charAt(0) == '0')
+                || (comma >= 0 && value.length() != comma + 3)) {
+            return NO_AMOUNT;
+        }
+        
+        long cents = 0;
+        for (int i = 0; i < value.length(); i++) {
+            if (i == comma) {
+                continue;
+            }
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return NO_AMOUNT;
+            }
+            cents = cents * 10 + (c - '0');
+        }
+        return comma < 0 ? cents * 100 : cents;
+    }
+    
+    static String formatAmount(long cents, boolean whole) {
+        if (whole) {
+            return Long.toString(cents / 100);
+        }
+        long fraction = cents % 100;
+        return (cents / 100) + (fraction < 10 ? ",0" : ",") + fraction;
+    }
+    
+    /**
+     * Epoch day of a date written as DD.MM.YYYY, NO_VALUE if the text is no valid date
+     */
+    static int parseDate(String value) {
+        if (value.length() != 10 || value.charAt(2) != '.' || value.charAt(5) != '.') {
+            return NO_VALUE;
+        }
+        int day = digits(value, 0, 2);
+        int month = digits(value, 3, 5);
+        int year = digits(value, 6, 10);
+        if (day < 0 || month < 0 || year < 1) {
+            return NO_VALUE;
+        }
+        try {
+            return (int) LocalDate.of(year, month, day).toEpochDay();
+        } catch (DateTimeException e) {
+            return NO_VALUE;
+        }
+    }
+    
+    static String formatDate(int epochDay) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        char[] text = new char[10];
+        putDigits(text, 0, 2, date.getDayOfMonth());
+        text[2] = '.';
+        putDigits(text, 3, 5, date.getMonthValue());
+        text[5] = '.';
+        putDigits(text, 6, 10, date.getYear());
+        return new String(text);
+    }
+    
+    /**
+     * Minutes since midnight of a time written as HH:MM (up to 24:59 like the dialog accepts),
+     * NO_VALUE for any other text
+     */
+    static int parseTime(String value) {
+        if (value.length() != 5 || value.charAt(2) != ':') {
+            return NO_VALUE;
+        }
+        int hours = digits(value, 0, 2);
+        int minutes = digits(value, 3, 5);
+        if (hours < 0 || hours > 24 || minutes < 0 || minutes > 59) {
+            return NO_VALUE;
+        }
+        return hours * 60 + minutes;
+    }
+    
+    static String formatTime(int minutesOfDay) {
+        char[] text = new char[5];
+        putDigits(text, 0, 2, minutesOfDay / 60);
+        text[2] = ':';
+        putDigits(text, 3, 5, minutesOfDay % 60);
+        return new String(text);
+    }
+    
+    /**
+     * Decimal value of value[from, to), -1 if there is a non-digit
+     */
+    private static int digits(String value, int from, int to) {
+        int number = 0;
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number;
+    }
+    
+    private static void putDigits(char[] text, int from, int to, int number) {
+        for (int i = to - 1; i >= from; i--) {
+            text[i] = (char) ('0' + number % 10);
+            number /= 10;
+        }
+    }
+    
+    /**
+     * Map view of the record, see asMap
+     */
+    private final class MapView extends AbstractMap<String, String> {
+        private Set<Map.Entry<String, String>> entrySet;
+        
+        @Override
+        public String get(Object key) {
+            return key instanceof String ? ClaimRecord.this.get((String) key) : null;
+        }
+        
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+        
+        @Override
+        public String put(String key, String value) {
+            String previous = ClaimRecord.this.get(key);
+            ClaimRecord.this.put(key, value);
+            return previous;
+        }
+        
+        @Override
+        public String remove(Object key) {
+            if (!(key instanceof String)) {
+                return null;
+            }
+            String previous = ClaimRecord.this.get((String) key);
+            ClaimRecord.this.remove((String) key);
+            return previous;
+        }
+        
+        @Override
+        public int size() {
+            return size;
+        }
+        
+        @Override
+        public Set<Map.Entry<String, String>> entrySet() {
+            if (entrySet == null) {
+                entrySet = new AbstractSet<Map.Entry<String, String>>() {
+                    @Override
+                    public Iterator<Map.Entry<String, String>> iterator() {
+                        return new EntryIterator();
+                    }
+                    
+                    @Override
+                    public int size() {
+                        return size;
+                    }
+                };
+            }
+            return entrySet;
+        }
+    }
+    
+    /**
+     * Set fields in ClaimField order, then the verbatim values of other keys
+     */
+    private final class EntryIterator implements Iterator<Map.Entry<String, String>> {
+        private final ClaimField[] fields = ClaimField.values();
+        private int fieldIndex;
+        private Iterator<Map.Entry<String, String>> others;
+        private Map.Entry<String, String> next;
+        
+        EntryIterator() {
+            advance();
+        }
+        
+        private void advance() {
+            while (fieldIndex < fields.length) {
+                ClaimField field = fields[fieldIndex++];
+                String value = get(field);
+                if (value != null) {
+                    next = new AbstractMap.SimpleImmutableEntry<>(field.getKey(), value);
+                    return;
+                }
+            }
+            if (others == null) {
+                others = verbatim != null ? verbatim.entrySet().iterator() : Collections.<Map.Entry<String, String>>emptyIterator();
+            }
+            while (others.hasNext()) {
+                Map.Entry<String, String> entry = others.next();
+                if (ClaimField.forKey(entry.getKey()) == null) {
+                    next = new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue());
+                    return;
+                }
+            }
+            next = null;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+        
+        @Override
+        public Map.Entry<String, String> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<String, String> entry = next;
+            advance();
+            return entry;
+        }
+    }
+}
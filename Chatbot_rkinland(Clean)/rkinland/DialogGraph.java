@@ -0,0 +1,637 @@
+package rkinland;
+
+import static rkinland.ChatbotState.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Declarative description of the travel expense dialog
+ * Every ChatbotState has one DialogNode (prompt, validator, target field, next-state function).
+ * The graph is immutable, indexed by state ordinal and shared by all conversations;
+ * DialogEngine walks it.
+ */
+public final class DialogGraph {
+    
+    /**
+     * Means of transport offered in VERKEHRSMITTEL_AUSWAHL and the states asking for its details
+     */
+    static final class Transport {
+        final DialogNode.Option option;
+        // First detail question, null if the transport has no questions (only announced)
+        final ChatbotState firstState;
+        
+        Transport(DialogNode.Option option, ChatbotState firstState) {
+            this.option = option;
+            this.firstState = firstState;
+        }
+    }
+    
+    private final DialogNode[] nodes;
+    private final Transport[] transports;
+    // Index into transports for the detail states of a transport, -1 for all other states
+    private final int[] transportIndex;
+    // Validator of every field entered as validated text, e.g. telefon -> PHONE
+    private final Map<String, Validator> fieldValidators;
+    
+    private DialogGraph(DialogNode[] nodes, Transport[] transports, int[] transportIndex,
+                        Map<String, Validator> fieldValidators) {
+        this.nodes = nodes;
+        this.transports = transports;
+        this.transportIndex = transportIndex;
+        this.fieldValidators = Collections.unmodifiableMap(fieldValidators);
+    }
+    
+    /**
+     * The dialog for the travel expense form (rkinland.pdf)
+     */
+    public static DialogGraph standard() {
+        return StandardHolder.STANDARD;
+    }
+    
+    // Built on first use, after the static transitions below are initialized
+    private static final class StandardHolder {
+        static final DialogGraph STANDARD = createStandardGraph();
+    }
+    
+    /**
+     * Node of a state, null for states without question (LANGUAGE_SELECTION, DONE)
+     */
+    public DialogNode node(ChatbotState state) {
+        return nodes[state.ordinal()];
+    }
+    
+    /**
+     * Validators by form field, so claims that do not go through the dialog can be checked the same way
+     */
+    public Map<String, Validator> fieldValidators() {
+        return fieldValidators;
+    }
+    
+    Transport[] transports() {
+        return transports;
+    }
+    
+    int transportIndex(ChatbotState state) {
+        return transportIndex[state.ordinal()];
+    }
+    
+    // Transitions
+    
+    /**
+     * Transition to a fixed state
+     */
+    public static DialogNode.Transition to(ChatbotState state) {
+        return engine -> state;
+    }
+    
+    /** Continue with the next selected means of transport, or with the accommodation */
+    public static final DialogNode.Transition NEXT_TRANSPORT = DialogEngine::nextTransport;
+    
+    private static boolean isSet(Map<String, String> formData, String field) {
+        return "Yes".equals(formData.get(field));
+    }
+    
+    /**
+     * Build the dialog graph of the travel expense form
+     */
+    private static DialogGraph createStandardGraph() {
+        Builder b = new Builder();
+        
+        // Personal data
+        b.text(WELCOME, "authority.request").store("behörde").then(PERSONAL_NAME);
+        b.text(PERSONAL_NAME, "personal.lastName").store("nachname").then(PERSONAL_VORNAME);
+        b.text(PERSONAL_VORNAME, "personal.firstName").store("vorname")
+            .derive("name", data -> data.get("nachname") + ", " + data.get("vorname"))
+            .then(PERSONAL_STATUS);
+        b.choice(PERSONAL_STATUS, "personal.status").echo("status.selected")
+            .option("personal.status.civil", "beamter")
+            .option("personal.status.tariff", "tarifB")
+            .option("personal.status.trainee", "anwärter")
+            .option("personal.status.apprentice", "azubi")
+            .then(PERSONAL_AKTENZEICHEN);
+        b.text(PERSONAL_AKTENZEICHEN, "personal.fileNumber").store("aktenzeichen").then(PERSONAL_REFERAT);
+        b.text(PERSONAL_REFERAT, "personal.department").store("referat").then(PERSONAL_KOSTENSTELLE);
+        b.text(PERSONAL_KOSTENSTELLE, "personal.costCenter").store("kostenstelle").then(PERSONAL_KOSTENTRAEGER);
+        b.text(PERSONAL_KOSTENTRAEGER, "personal.costBearer").store("kostenträger").then(PERSONAL_TELEFON);
+        b.text(PERSONAL_TELEFON, "personal.phone").validate(Validator.PHONE)
+            .store("telefon").then(PERSONAL_EMAIL);
+        b.text(PERSONAL_EMAIL, "personal.email").validate(Validator.EMAIL)
+            .store("email").then(PERSONAL_ABORDNUNG);
+        b.yesNo(PERSONAL_ABORDNUNG, "personal.secondment")
+            .yes("abordnung", to(PERSONAL_STAMMBEHOERDE))
+            .no(null, to(PERSONAL_ERSTANTRAG));
+        b.text(PERSONAL_STAMMBEHOERDE, "personal.originalAuthority").store("stammBehörde").then(PERSONAL_ERSTANTRAG);
+        b.yesNo(PERSONAL_ERSTANTRAG, "personal.firstApplication")
+            .yes(null, to(PERSONAL_ANSCHRIFT))
+            .no(null, to(REISE_ZWECK));
+        b.text(PERSONAL_ANSCHRIFT, "personal.address").store("anschrift").then(PERSONAL_FAMILIENWOHNORT);
+        b.text(PERSONAL_FAMILIENWOHNORT, "personal.familyAddress").store("familienwohnort").then(PERSONAL_PERSONALNUMMER);
+        b.text(PERSONAL_PERSONALNUMMER, "personal.personalNumber")
+            .validate(Validator.PERSONAL_NUMBER)
+            .store("personalNr").then(PERSONAL_GELDINSTITUT);
+        b.text(PERSONAL_GELDINSTITUT, "personal.bank").store("geldinstitut").then(PERSONAL_IBAN);
+        b.text(PERSONAL_IBAN, "personal.iban").validate(Validator.IBAN)
+            .normalize(iban -> iban.replace(" ", "").toUpperCase())
+            .store("iban").then(PERSONAL_BIC);
+        b.text(PERSONAL_BIC, "personal.bic").validate(Validator.BIC)
+            .normalize(bic -> bic.trim().toUpperCase())
+            .store("bic").then(REISE_ZWECK);
+        
+        // Travel data
+        b.text(REISE_ZWECK, "travel.purpose").store("zweck").then(REISE_GESCHAEFTSORT);
+        b.text(REISE_GESCHAEFTSORT, "travel.destination").store("geschäftsort").then(REISE_BEGINN_DATUM);
+        b.date(REISE_BEGINN_DATUM, "travel.startDate", "beginnReiseDatum", REISE_BEGINN_ZEIT);
+        b.time(REISE_BEGINN_ZEIT, "travel.startTime", "beginnReiseZeit", REISE_BEGINN_ORT);
+        b.choice(REISE_BEGINN_ORT, "travel.startLocation")
+            .option("travel.startLocation.home", "beginnWohnung")
+            .option("travel.startLocation.office", "beginnDienststelle")
+            .option("travel.startLocation.temporary", "beginnVorübergehend")
+            .then(REISE_ANKUNFT_DATUM);
+        b.date(REISE_ANKUNFT_DATUM, "travel.arrivalDate", "ankunftDatum", REISE_ANKUNFT_ZEIT);
+        b.time(REISE_ANKUNFT_ZEIT, "travel.arrivalTime", "ankunftUhrzeit", REISE_BEGINN_DIENST_DATUM);
+        b.date(REISE_BEGINN_DIENST_DATUM, "travel.businessStartDate", "beginnDienstDatum", REISE_BEGINN_DIENST_ZEIT);
+        b.time(REISE_BEGINN_DIENST_ZEIT, "travel.businessStartTime", "beginnDienstUhrzeit", REISE_ENDE_DIENST_DATUM);
+        b.date(REISE_ENDE_DIENST_DATUM, "travel.businessEndDate", "endeDienstDatum", REISE_ENDE_DIENST_ZEIT);
+        b.time(REISE_ENDE_DIENST_ZEIT, "travel.businessEndTime", "endeDienstUhrzeit", REISE_ABFAHRT_DATUM);
+        b.date(REISE_ABFAHRT_DATUM, "travel.departureDate", "abfahrtDatum", REISE_ABFAHRT_ZEIT);
+        b.time(REISE_ABFAHRT_ZEIT, "travel.departureTime", "abfahrtUhrzeit", REISE_ENDE_DATUM);
+        b.date(REISE_ENDE_DATUM, "travel.endDate", "endeReiseDatum", REISE_ENDE_ZEIT);
+        b.time(REISE_ENDE_ZEIT, "travel.endTime", "endeReiseZeit", REISE_ENDE_ORT);
+        b.choice(REISE_ENDE_ORT, "travel.endLocation")
+            .option("travel.endLocation.home", "endeWohnung")
+            .option("travel.endLocation.office", "endeDienststelle")
+            .option("travel.endLocation.temporary", "endeVorübergehend")
+            .then(REISE_PRIVATREISE);
+        b.yesNo(REISE_PRIVATREISE, "travel.privateTrip")
+            .yes("privatreise", to(REISE_PRIVATREISE_ERLAEUTERUNG))
+            .no(null, to(REISE_TELEARBEIT));
+        b.text(REISE_PRIVATREISE_ERLAEUTERUNG, "travel.privateTripDetails").store("privatreiseErläuterung").then(REISE_TELEARBEIT);
+        b.yesNo(REISE_TELEARBEIT, "travel.telecommuting")
+            .yes("telearbeit", to(REISE_TELEARBEIT_ERLAEUTERUNG))
+            .no(null, to(REISE_ABRECHNUNGSSTELLE));
+        b.text(REISE_TELEARBEIT_ERLAEUTERUNG, "travel.telecommutingDetails").store("telearbeitErläuterung").then(REISE_ABRECHNUNGSSTELLE);
+        b.choice(REISE_ABRECHNUNGSSTELLE, "travel.accountingOffice")
+            .option("travel.accountingOffice.berlin", "AsBerlin")
+            .option("travel.accountingOffice.hamm", "AsHamm")
+            .option("travel.accountingOffice.osnabrueck", "AsOsnabrück")
+            .then(VERKEHRSMITTEL_AUSWAHL);
+        
+        // Transport selection; the selected transports are asked for in this order
+        b.transport("transport.official", "dienstKfz");
+        b.transport("transport.private", "privatKfz",
+            VERKEHR_PRIVATKFZ_WEGSTRECKENART, VERKEHR_PRIVATKFZ_KILOMETER, VERKEHR_PRIVATKFZ_STRECKE);
+        b.transport("transport.passenger", "mitfahrer", VERKEHR_MITFAHRER_NAME);
+        b.transport("transport.rental", "mietwagen",
+            VERKEHR_MIETWAGEN_BUCHUNG, VERKEHR_MIETWAGEN_KOSTEN, VERKEHR_MIETWAGEN_BENZIN, VERKEHR_MIETWAGEN_BEGRUENDUNG);
+        b.transport("transport.train", "bahn",
+            VERKEHR_BAHN_BUCHUNG, VERKEHR_BAHN_BAHNCARD, VERKEHR_BAHN_BAHNCARD_TYP, VERKEHR_BAHN_BAHNCARD_WERT,
+            VERKEHR_BAHN_BAHNCARD_KLASSE, VERKEHR_BAHN_BONUS, VERKEHR_BAHN_BONUS_NAME, VERKEHR_BAHN_HINFAHRT,
+            VERKEHR_BAHN_RUECKFAHRT, VERKEHR_BAHN_VORGABEN);
+        b.transport("transport.flight", "flug",
+            VERKEHR_FLUG_BUCHUNG, VERKEHR_FLUG_KOSTEN, VERKEHR_FLUG_BEGRUENDUNG, VERKEHR_FLUG_BONUS, VERKEHR_FLUG_BONUS_NAME);
+        b.transport("transport.public", "öpnv", VERKEHR_OEPNV_ANZAHL, VERKEHR_OEPNV_KOSTEN, VERKEHR_OEPNV_GRUND);
+        b.transport("transport.taxi", "taxi",
+            VERKEHR_TAXI_ANTRAG, VERKEHR_TAXI_ANZAHL, VERKEHR_TAXI_KOSTEN, VERKEHR_TAXI_GRUND);
+        b.transport("transport.bicycle", "fahrrad", VERKEHR_FAHRRAD_ANZAHL, VERKEHR_FAHRRAD_PAUSCHALE);
+        b.transport("transport.other", "andereVerkehrsmittel",
+            VERKEHR_SONSTIGES_ART, VERKEHR_SONSTIGES_ANZAHL, VERKEHR_SONSTIGES_KOSTEN, VERKEHR_SONSTIGES_GRUND);
+        b.multiChoice(VERKEHRSMITTEL_AUSWAHL, "transport.select").transportOptions().then(NEXT_TRANSPORT);
+        
+        // Private car
+        b.choice(VERKEHR_PRIVATKFZ_WEGSTRECKENART, "transport.private.compensation")
+            .option("transport.private.compensation.small", "KfzKleineWECheck")
+            .option("transport.private.compensation.large", "KfzGrosseWECheck")
+            .then(VERKEHR_PRIVATKFZ_KILOMETER);
+        b.text(VERKEHR_PRIVATKFZ_KILOMETER, "transport.private.kilometers")
+            .store(data -> isSet(data, "KfzGrosseWECheck") ? "KfzGrosseWEAnzahlKm" : "KfzKleineWEAnzahlKm")
+            .then(VERKEHR_PRIVATKFZ_STRECKE);
+        b.text(VERKEHR_PRIVATKFZ_STRECKE, "transport.private.route")
+            .store(data -> isSet(data, "KfzGrosseWECheck") ? "KfzGrosseWEOrt" : "KfzKleineWEOrt")
+            .then(NEXT_TRANSPORT);
+        
+        // Passenger
+        b.text(VERKEHR_MITFAHRER_NAME, "transport.passenger.name").store("mitfahrerName").then(NEXT_TRANSPORT);
+        
+        // Rental car
+        b.choice(VERKEHR_MIETWAGEN_BUCHUNG, "transport.rental.bookedBy")
+            .option("transport.rental.bookedBy.travelPrep", "mietwagenRV")
+            .option("transport.rental.bookedBy.self", "mietwagenSelbst")
+            .then(VERKEHR_MIETWAGEN_KOSTEN);
+        b.text(VERKEHR_MIETWAGEN_KOSTEN, "transport.rental.costs").store("Mietkosten").then(VERKEHR_MIETWAGEN_BENZIN);
+        b.text(VERKEHR_MIETWAGEN_BENZIN, "transport.rental.fuelCosts").store("Benzinkosten")
+            .then(engine -> isSet(engine.getFormData(), "mietwagenSelbst")
+                ? VERKEHR_MIETWAGEN_BEGRUENDUNG : engine.nextTransport());
+        b.text(VERKEHR_MIETWAGEN_BEGRUENDUNG, "transport.rental.reason").store("MietwagenBegründung").then(NEXT_TRANSPORT);
+        
+        // Train
+        b.choice(VERKEHR_BAHN_BUCHUNG, "transport.train.bookedBy")
+            .option("transport.train.bookedBy.travelPrep", "bahnRV")
+            .option("transport.train.bookedBy.self", "bahnSelbst")
+            .then(VERKEHR_BAHN_BAHNCARD);
+        b.yesNo(VERKEHR_BAHN_BAHNCARD, "transport.train.bahncard")
+            .yes("bahncardVorhanden", to(VERKEHR_BAHN_BAHNCARD_TYP))
+            .no(null, to(VERKEHR_BAHN_BONUS));
+        b.choice(VERKEHR_BAHN_BAHNCARD_TYP, "transport.train.bahncard.type")
+            .option("transport.train.bahncard.type.private", "bahncardPrivat")
+            .option("transport.train.bahncard.type.business", "bahncardBusiness")
+            .then(VERKEHR_BAHN_BAHNCARD_WERT);
+        b.choice(VERKEHR_BAHN_BAHNCARD_WERT, "transport.train.bahncard.value")
+            .option("transport.train.bahncard.value.25", "bahncard25")
+            .option("transport.train.bahncard.value.50", "bahncard50")
+            .option("transport.train.bahncard.value.100", "bahncard100")
+            .then(VERKEHR_BAHN_BAHNCARD_KLASSE);
+        b.choice(VERKEHR_BAHN_BAHNCARD_KLASSE, "transport.train.bahncard.class")
+            .option("transport.train.bahncard.class.first", "klasse1")
+            .option("transport.train.bahncard.class.second", "klasse2")
+            .then(VERKEHR_BAHN_BONUS);
+        b.yesNo(VERKEHR_BAHN_BONUS, "transport.train.bonus")
+            .yes("bahnBonus", to(VERKEHR_BAHN_BONUS_NAME))
+            .no(null, to(VERKEHR_BAHN_HINFAHRT));
+        b.text(VERKEHR_BAHN_BONUS_NAME, "transport.train.bonus.name").store("bahnBonusName").then(VERKEHR_BAHN_HINFAHRT);
+        b.text(VERKEHR_BAHN_HINFAHRT, "transport.train.outward").store("BahnHinfahrt").then(VERKEHR_BAHN_RUECKFAHRT);
+        b.text(VERKEHR_BAHN_RUECKFAHRT, "transport.train.return").store("BahnRückfahrt").then(VERKEHR_BAHN_VORGABEN);
+        b.yesNo(VERKEHR_BAHN_VORGABEN, "transport.train.guidelines")
+            .yes("BahnReisekostenVorgaben", NEXT_TRANSPORT)
+            .no(null, NEXT_TRANSPORT);
+        
+        // Flight
+        b.choice(VERKEHR_FLUG_BUCHUNG, "transport.flight.bookedBy")
+            .option("transport.flight.bookedBy.travelPrep", "flugRV")
+            .option("transport.flight.bookedBy.self", "flugSelbst")
+            .then(VERKEHR_FLUG_KOSTEN);
+        b.text(VERKEHR_FLUG_KOSTEN, "transport.flight.costs").store("FlugKosten").then(VERKEHR_FLUG_BEGRUENDUNG);
+        b.text(VERKEHR_FLUG_BEGRUENDUNG, "transport.flight.reason").store("FlugBegründung").then(VERKEHR_FLUG_BONUS);
+        b.yesNo(VERKEHR_FLUG_BONUS, "transport.flight.bonus")
+            .yes("flugBonusProgramm", to(VERKEHR_FLUG_BONUS_NAME))
+            .no(null, NEXT_TRANSPORT);
+        b.text(VERKEHR_FLUG_BONUS_NAME, "transport.flight.bonus.name").store("flugBonusName").then(NEXT_TRANSPORT);
+        
+        // Public transport
+        b.text(VERKEHR_OEPNV_ANZAHL, "transport.public.trips").store("öpnvAnzahl").then(VERKEHR_OEPNV_KOSTEN);
+        b.text(VERKEHR_OEPNV_KOSTEN, "transport.public.costs").store("öpnvKosten").then(VERKEHR_OEPNV_GRUND);
+        b.text(VERKEHR_OEPNV_GRUND, "transport.public.reason").store("öpnvGrund").then(NEXT_TRANSPORT);
+        
+        // Taxi
+        b.yesNo(VERKEHR_TAXI_ANTRAG, "transport.taxi.request")
+            .yes("taxiAntrag", to(VERKEHR_TAXI_ANZAHL))
+            .no(null, NEXT_TRANSPORT);
+        b.text(VERKEHR_TAXI_ANZAHL, "transport.taxi.trips").store("taxiAnzahl").then(VERKEHR_TAXI_KOSTEN);
+        b.text(VERKEHR_TAXI_KOSTEN, "transport.taxi.costs").store("taxiKosten").then(VERKEHR_TAXI_GRUND);
+        b.text(VERKEHR_TAXI_GRUND, "transport.taxi.reason").store("taxiGrund").then(NEXT_TRANSPORT);
+        
+        // Bicycle
+        b.text(VERKEHR_FAHRRAD_ANZAHL, "transport.bicycle.trips").store("fahrradAnzahl").then(VERKEHR_FAHRRAD_PAUSCHALE);
+        b.yesNo(VERKEHR_FAHRRAD_PAUSCHALE, "transport.bicycle.request")
+            .yes("fahrradPauschale", NEXT_TRANSPORT)
+            .no(null, NEXT_TRANSPORT);
+        
+        // Other transport
+        b.text(VERKEHR_SONSTIGES_ART, "transport.other.type").store("AndereVerkehrsmittelText").then(VERKEHR_SONSTIGES_ANZAHL);
+        b.text(VERKEHR_SONSTIGES_ANZAHL, "transport.other.items").store("SonstigeKostenAnzahl").then(VERKEHR_SONSTIGES_KOSTEN);
+        b.text(VERKEHR_SONSTIGES_KOSTEN, "transport.other.costs").store("SonstigeKostenKosten").then(VERKEHR_SONSTIGES_GRUND);
+        b.text(VERKEHR_SONSTIGES_GRUND, "transport.other.reason").store("SonstigeKostenGrund").then(NEXT_TRANSPORT);
+        
+        // Accommodation
+        b.yesNo(UEBERNACHTUNG, "accommodation")
+            .yes(null, to(UEBERNACHTUNG_UNENTGELTLICH))
+            .no(null, to(ZUSATZ_LEISTUNG_DRITTE));
+        b.yesNo(UEBERNACHTUNG_UNENTGELTLICH, "accommodation.free")
+            .yes("unterkunftUnentgeltlichJa", to(UEBERNACHTUNG_UNTERKUNFT))
+            .no("unterkunftUnentgeltlichNein", to(UEBERNACHTUNG_HOTEL));
+        b.yesNo(UEBERNACHTUNG_UNTERKUNFT, "accommodation.received")
+            .yes(null, to(UEBERNACHTUNG_UNTERKUNFT_VON))
+            .no(null, to(UEBERNACHTUNG_FRUEHSTUECK));
+        b.date(UEBERNACHTUNG_UNTERKUNFT_VON, "accommodation.from", "UnterkunftVon", UEBERNACHTUNG_UNTERKUNFT_BIS);
+        b.date(UEBERNACHTUNG_UNTERKUNFT_BIS, "accommodation.to", "UnterkunftBis", UEBERNACHTUNG_FRUEHSTUECK);
+        b.yesNo(UEBERNACHTUNG_FRUEHSTUECK, "accommodation.breakfast")
+            .yes(null, to(UEBERNACHTUNG_FRUEHSTUECK_VON))
+            .no(null, to(UEBERNACHTUNG_MITTAGESSEN));
+        b.date(UEBERNACHTUNG_FRUEHSTUECK_VON, "accommodation.breakfast.from", "FrühstückVon", UEBERNACHTUNG_FRUEHSTUECK_BIS);
+        b.date(UEBERNACHTUNG_FRUEHSTUECK_BIS, "accommodation.breakfast.to", "FrühstückBis", UEBERNACHTUNG_MITTAGESSEN);
+        b.yesNo(UEBERNACHTUNG_MITTAGESSEN, "accommodation.lunch")
+            .yes(null, to(UEBERNACHTUNG_MITTAGESSEN_VON))
+            .no(null, to(UEBERNACHTUNG_ABENDESSEN));
+        b.date(UEBERNACHTUNG_MITTAGESSEN_VON, "accommodation.lunch.from", "MittagessenVon", UEBERNACHTUNG_MITTAGESSEN_BIS);
+        b.date(UEBERNACHTUNG_MITTAGESSEN_BIS, "accommodation.lunch.to", "MittagessenBis", UEBERNACHTUNG_ABENDESSEN);
+        b.yesNo(UEBERNACHTUNG_ABENDESSEN, "accommodation.dinner")
+            .yes(null, to(UEBERNACHTUNG_ABENDESSEN_VON))
+            .no(null, to(UEBERNACHTUNG_HOTEL));
+        b.date(UEBERNACHTUNG_ABENDESSEN_VON, "accommodation.dinner.from", "AbendessenVon", UEBERNACHTUNG_ABENDESSEN_BIS);
+        b.date(UEBERNACHTUNG_ABENDESSEN_BIS, "accommodation.dinner.to", "AbendessenBis", UEBERNACHTUNG_HOTEL);
+        
+        // Hotel
+        b.yesNo(UEBERNACHTUNG_HOTEL, "accommodation.hotel")
+            .yes(null, to(UEBERNACHTUNG_HOTEL_ANZAHL))
+            .no(null, to(UEBERNACHTUNG_WOHNUNG));
+        b.custom(UEBERNACHTUNG_HOTEL_ANZAHL, "accommodation.hotel.count", DialogGraph::handleHotelCount);
+        b.text(UEBERNACHTUNG_HOTEL1_NAME, "accommodation.hotel1.name").store("HotelName1").then(UEBERNACHTUNG_HOTEL1_ORT);
+        b.text(UEBERNACHTUNG_HOTEL1_ORT, "accommodation.hotel1.location").store("ÜbernachtungOrt1").then(UEBERNACHTUNG_HOTEL1_VON);
+        b.date(UEBERNACHTUNG_HOTEL1_VON, "accommodation.hotel1.from", "ÜbernachtungVon1", UEBERNACHTUNG_HOTEL1_BIS);
+        b.date(UEBERNACHTUNG_HOTEL1_BIS, "accommodation.hotel1.to", "ÜbernachtungBis1", UEBERNACHTUNG_HOTEL1_KOSTEN);
+        b.text(UEBERNACHTUNG_HOTEL1_KOSTEN, "accommodation.hotel1.costs").store("HotelKosten1").then(UEBERNACHTUNG_HOTEL1_FRUEHSTUECK);
+        DialogNode.Transition afterHotel1 = engine -> engine.getHotelAnzahl() == 2
+            ? UEBERNACHTUNG_HOTEL2_NAME : UEBERNACHTUNG_HOTEL_RECHNUNG;
+        b.yesNo(UEBERNACHTUNG_HOTEL1_FRUEHSTUECK, "accommodation.hotel1.breakfast")
+            .yes("MitFrühstück1", afterHotel1)
+            .no("OhneFrühstück1", afterHotel1);
+        b.text(UEBERNACHTUNG_HOTEL2_NAME, "accommodation.hotel2.name").store("HotelName2").then(UEBERNACHTUNG_HOTEL2_ORT);
+        b.text(UEBERNACHTUNG_HOTEL2_ORT, "accommodation.hotel2.location").store("ÜbernachtungOrt2").then(UEBERNACHTUNG_HOTEL2_VON);
+        b.date(UEBERNACHTUNG_HOTEL2_VON, "accommodation.hotel2.from", "ÜbernachtungVon2", UEBERNACHTUNG_HOTEL2_BIS);
+        b.date(UEBERNACHTUNG_HOTEL2_BIS, "accommodation.hotel2.to", "ÜbernachtungBis2", UEBERNACHTUNG_HOTEL2_KOSTEN);
+        b.text(UEBERNACHTUNG_HOTEL2_KOSTEN, "accommodation.hotel2.costs").store("HotelKosten2").then(UEBERNACHTUNG_HOTEL2_FRUEHSTUECK);
+        b.yesNo(UEBERNACHTUNG_HOTEL2_FRUEHSTUECK, "accommodation.hotel2.breakfast")
+            .yes("MitFrühstück2", to(UEBERNACHTUNG_HOTEL_RECHNUNG))
+            .no("OhneFrühstück2", to(UEBERNACHTUNG_HOTEL_RECHNUNG));
+        b.yesNo(UEBERNACHTUNG_HOTEL_RECHNUNG, "accommodation.hotel.billing")
+            .yes("BuchungRechnung", to(UEBERNACHTUNG_HOTEL_BUCHUNG))
+            .no(null, to(UEBERNACHTUNG_HOTEL_BUCHUNG));
+        b.choice(UEBERNACHTUNG_HOTEL_BUCHUNG, "accommodation.hotel.bookedBy")
+            .option("accommodation.hotel.bookedBy.travelPrep", "BuchungRv")
+            .option("accommodation.hotel.bookedBy.traveler", "BuchungReisenden")
+            .option("accommodation.hotel.bookedBy.other", "BuchungAndereStelle")
+            .then(engine -> isSet(engine.getFormData(), "BuchungReisenden")
+                ? UEBERNACHTUNG_HOTEL_TMS : UEBERNACHTUNG_HOTEL_DOPPELZIMMER);
+        b.yesNo(UEBERNACHTUNG_HOTEL_TMS, "accommodation.hotel.tms")
+            .yes("BuchungTMS", to(UEBERNACHTUNG_HOTEL_PREISGRENZE))
+            .no(null, to(UEBERNACHTUNG_HOTEL_PREISGRENZE));
+        b.yesNo(UEBERNACHTUNG_HOTEL_PREISGRENZE, "accommodation.hotel.priceLimit")
+            .yes("BuchungPreisgrenze", to(UEBERNACHTUNG_HOTEL_PREISGRENZE_GRUND))
+            .no(null, to(UEBERNACHTUNG_HOTEL_DOPPELZIMMER));
+        b.text(UEBERNACHTUNG_HOTEL_PREISGRENZE_GRUND, "accommodation.hotel.priceLimit.reason")
+            .store("BuchungPreisgrenzeGrund").then(UEBERNACHTUNG_HOTEL_DOPPELZIMMER);
+        b.yesNo(UEBERNACHTUNG_HOTEL_DOPPELZIMMER, "accommodation.hotel.doubleRoom")
+            .yes("DoppelzimmerMitAnderen", to(UEBERNACHTUNG_WOHNUNG))
+            .no(null, to(UEBERNACHTUNG_WOHNUNG));
+        
+        // Residence, private accommodation
+        b.yesNo(UEBERNACHTUNG_WOHNUNG, "accommodation.residence.outside")
+            .yes("ÜbernachtungWohnungAus", to(UEBERNACHTUNG_WOHNUNG_BETRETEN))
+            .no(null, to(UEBERNACHTUNG_WOHNUNG_GESCHAEFTSORT));
+        b.text(UEBERNACHTUNG_WOHNUNG_BETRETEN, "accommodation.residence.outside.enter")
+            .store("ÜbernachtungWohnungAusBetreten").then(UEBERNACHTUNG_WOHNUNG_VERLASSEN);
+        b.text(UEBERNACHTUNG_WOHNUNG_VERLASSEN, "accommodation.residence.outside.leave")
+            .store("ÜbernachtungWohnungAusVerlassen").then(UEBERNACHTUNG_WOHNUNG_GESCHAEFTSORT);
+        b.yesNo(UEBERNACHTUNG_WOHNUNG_GESCHAEFTSORT, "accommodation.residence.destination")
+            .yes("ÜbernachtungWohnungAm", to(UEBERNACHTUNG_WOHNUNG_GESCHAEFTSORT_BETRETEN))
+            .no(null, to(UEBERNACHTUNG_PRIVAT));
+        b.text(UEBERNACHTUNG_WOHNUNG_GESCHAEFTSORT_BETRETEN, "accommodation.residence.destination.enter")
+            .store("ÜbernachtungWohnungAmBetreten").then(UEBERNACHTUNG_WOHNUNG_GESCHAEFTSORT_VERLASSEN);
+        b.text(UEBERNACHTUNG_WOHNUNG_GESCHAEFTSORT_VERLASSEN, "accommodation.residence.destination.leave")
+            .store("ÜbernachtungWohnungAmVerlassen").then(UEBERNACHTUNG_PRIVAT);
+        b.yesNo(UEBERNACHTUNG_PRIVAT, "accommodation.private")
+            .yes("PrivateÜbernachtung", to(UEBERNACHTUNG_BEFOERDERUNG))
+            .no(null, to(UEBERNACHTUNG_BEFOERDERUNG));
+        b.yesNo(UEBERNACHTUNG_BEFOERDERUNG, "accommodation.transport")
+            .yes("ÜbernachtungInBeförderung", to(UEBERNACHTUNG_KOSTEN_ENTHALTEN))
+            .no(null, to(UEBERNACHTUNG_KOSTEN_ENTHALTEN));
+        b.yesNo(UEBERNACHTUNG_KOSTEN_ENTHALTEN, "accommodation.costs.included")
+            .yes("ÜbernachtungsKostenEnthalten", to(ZUSATZ_LEISTUNG_DRITTE))
+            .no(null, to(ZUSATZ_LEISTUNG_DRITTE));
+        
+        // Additional information
+        b.yesNo(ZUSATZ_LEISTUNG_DRITTE, "additional.thirdParty")
+            .yes("LeistungVonDritten", to(ZUSATZ_LEISTUNG_DRITTE_HOEHE))
+            .no(null, to(ZUSATZ_NEBENTAETIGKEIT));
+        b.text(ZUSATZ_LEISTUNG_DRITTE_HOEHE, "additional.thirdParty.amount").store("LeistungVonDrittenHöhe").then(ZUSATZ_NEBENTAETIGKEIT);
+        b.yesNo(ZUSATZ_NEBENTAETIGKEIT, "additional.sideActivity")
+            .yes("InVerbindungmitNeben", to(ZUSATZ_ABSCHLAG))
+            .no(null, to(ZUSATZ_ABSCHLAG));
+        b.yesNo(ZUSATZ_ABSCHLAG, "additional.advance")
+            .yes("Abschlag", to(ZUSATZ_ABSCHLAG_HOEHE))
+            .no(null, to(ZUSATZ_ERGAENZENDE_AUSFUEHRUNGEN));
+        b.text(ZUSATZ_ABSCHLAG_HOEHE, "additional.advance.amount").store("AbschlagHöhe").then(ZUSATZ_ERGAENZENDE_AUSFUEHRUNGEN);
+        b.text(ZUSATZ_ERGAENZENDE_AUSFUEHRUNGEN, "additional.comments").store("ErgänzendeAusführungen").then(ZUSATZ_BELEGE);
+        b.yesNo(ZUSATZ_BELEGE, "additional.receipts")
+            .yes("Belege", to(ZUSATZ_MUENDLICH_GENEHMIGT))
+            .no(null, to(ZUSATZ_MUENDLICH_GENEHMIGT));
+        b.yesNo(ZUSATZ_MUENDLICH_GENEHMIGT, "additional.verbalApproval")
+            .yes("MündlichGenehmigtJa", to(ZUSATZ_UNTERSCHRIFT_ORT))
+            .no("MündlichGenehmigtNein", to(ZUSATZ_UNTERSCHRIFT_ORT));
+        b.text(ZUSATZ_UNTERSCHRIFT_ORT, "additional.signature.location").store("UnterschriftOrt").then(ZUSATZ_UNTERSCHRIFT_DATUM);
+        b.date(ZUSATZ_UNTERSCHRIFT_DATUM, "additional.signature.date", "UnterschriftDatum", ABSCHLUSS_PDF);
+        
+        // Final question
+        b.yesNo(ABSCHLUSS_PDF, "pdf.create")
+            .yes(null, engine -> engine.finish(true))
+            .no(null, engine -> engine.finish(false));
+        
+        return b.build();
+    }
+    
+    /**
+     * Number of hotels, only 1 or 2 fit on the form
+     */
+    private static ChatbotState handleHotelCount(DialogEngine engine, String userInput) {
+        try {
+            int hotelAnzahl = Integer.parseInt(userInput.trim());
+            if (hotelAnzahl != 1 && hotelAnzahl != 2) {
+                throw new NumberFormatException("Only 1 or 2 allowed");
+            }
+            engine.setHotelAnzahl(hotelAnzahl);
+            return UEBERNACHTUNG_HOTEL1_NAME;
+        } catch (NumberFormatException e) {
+            engine.botMessage(engine.getMessage("error.invalidInput") + " " + engine.getMessage("accommodation.hotel.count"));
+            return null;
+        }
+    }
+    
+    /**
+     * Collects node definitions and checks that every question state is defined once
+     */
+    static final class Builder {
+        private final NodeBuilder[] nodes = new NodeBuilder[ChatbotState.values().length];
+        private final List<Transport> transports = new ArrayList<>();
+        private final int[] transportIndex = new int[ChatbotState.values().length];
+        
+        Builder() {
+            Arrays.fill(transportIndex, -1);
+        }
+        
+        NodeBuilder text(ChatbotState state, String promptKey) {
+            return add(new NodeBuilder(state, DialogNode.Kind.TEXT, promptKey));
+        }
+        
+        /**
+         * Text node for a date in DD.MM.YYYY format
+         */
+        NodeBuilder date(ChatbotState state, String promptKey, String field, ChatbotState next) {
+            return text(state, promptKey).validate(Validator.DATE).store(field).then(next);
+        }
+        
+        /**
+         * Text node for a time in HH:MM format
+         */
+        NodeBuilder time(ChatbotState state, String promptKey, String field, ChatbotState next) {
+            return text(state, promptKey).validate(Validator.TIME).store(field).then(next);
+        }
+        
+        NodeBuilder yesNo(ChatbotState state, String questionKey) {
+            return add(new NodeBuilder(state, DialogNode.Kind.YES_NO, questionKey));
+        }
+        
+        NodeBuilder choice(ChatbotState state, String headerKey) {
+            return add(new NodeBuilder(state, DialogNode.Kind.CHOICE, headerKey)).echo(headerKey);
+        }
+        
+        NodeBuilder multiChoice(ChatbotState state, String headerKey) {
+            return add(new NodeBuilder(state, DialogNode.Kind.MULTI_CHOICE, headerKey));
+        }
+        
+        NodeBuilder custom(ChatbotState state, String promptKey, DialogNode.Handler handler) {
+            NodeBuilder node = add(new NodeBuilder(state, DialogNode.Kind.CUSTOM, promptKey));
+            node.handler = handler;
+            return node;
+        }
+        
+        /**
+         * Register a means of transport with its detail states (none if it is only announced)
+         */
+        void transport(String labelKey, String field, ChatbotState... states) {
+            for (ChatbotState state : states) {
+                transportIndex[state.ordinal()] = transports.size();
+            }
+            transports.add(new Transport(new DialogNode.Option(labelKey, field), states.length > 0 ? states[0] : null));
+        }
+        
+        private NodeBuilder add(NodeBuilder node) {
+            if (nodes[node.state.ordinal()] != null) {
+                throw new IllegalStateException("State defined twice: " + node.state);
+            }
+            node.builder = this;
+            nodes[node.state.ordinal()] = node;
+            return node;
+        }
+        
+        DialogGraph build() {
+            DialogNode[] built = new DialogNode[nodes.length];
+            Map<String, Validator> fieldValidators = new HashMap<>();
+            for (int i = 0; i < nodes.length; i++) {
+                if (nodes[i] != null) {
+                    built[i] = nodes[i].build();
+                    if (nodes[i].validator != null && nodes[i].fixedField != null) {
+                        fieldValidators.put(nodes[i].fixedField, nodes[i].validator);
+                    }
+                }
+            }
+            return new DialogGraph(built, transports.toArray(new Transport[0]), transportIndex.clone(), fieldValidators);
+        }
+    }
+    
+    /**
+     * Fluent definition of one node
+     */
+    static final class NodeBuilder {
+        private final ChatbotState state;
+        private final DialogNode.Kind kind;
+        private final String promptKey;
+        private final List<DialogNode.Option> options = new ArrayList<>();
+        private Builder builder;
+        private Validator validator;
+        private Function<Map<String, String>, String> field;
+        // Target field if it does not depend on earlier answers
+        private String fixedField;
+        private UnaryOperator<String> normalizer;
+        private String derivedField;
+        private Function<Map<String, String>, String> derivation;
+        private String echoKey;
+        private String yesField;
+        private String noField;
+        private DialogNode.Transition next;
+        private DialogNode.Transition nextNo;
+        private DialogNode.Handler handler;
+        
+        NodeBuilder(ChatbotState state, DialogNode.Kind kind, String promptKey) {
+            this.state = state;
+            this.kind = kind;
+            this.promptKey = promptKey;
+        }
+        
+        NodeBuilder validate(Validator validator) {
+            this.validator = validator;
+            return this;
+        }
+        
+        NodeBuilder store(String field) {
+            this.field = data -> field;
+            this.fixedField = field;
+            return this;
+        }
+        
+        /**
+         * Target field depending on earlier answers
+         */
+        NodeBuilder store(Function<Map<String, String>, String> field) {
+            this.field = field;
+            return this;
+        }
+        
+        NodeBuilder normalize(UnaryOperator<String> normalizer) {
+            this.normalizer = normalizer;
+            return this;
+        }
+        
+        NodeBuilder derive(String field, Function<Map<String, String>, String> derivation) {
+            this.derivedField = field;
+            this.derivation = derivation;
+            return this;
+        }
+        
+        NodeBuilder echo(String echoKey) {
+            this.echoKey = echoKey;
+            return this;
+        }
+        
+        NodeBuilder option(String labelKey, String field) {
+            options.add(new DialogNode.Option(labelKey, field));
+            return this;
+        }
+        
+        /**
+         * Use the registered means of transport as menu options
+         */
+        NodeBuilder transportOptions() {
+            for (Transport transport : builder.transports) {
+                options.add(transport.option);
+            }
+            return this;
+        }
+        
+        NodeBuilder yes(String field, DialogNode.Transition next) {
+            this.yesField = field;
+            this.next = next;
+            return this;
+        }
+        
+        NodeBuilder no(String field, DialogNode.Transition next) {
+            this.noField = field;
+            this.nextNo = next;
+            return this;
+        }
+        
+        NodeBuilder then(ChatbotState next) {
+            return then(to(next));
+        }
+        
+        NodeBuilder then(DialogNode.Transition next) {
+            this.next = next;
+            return this;
+        }
+        
+        DialogNode build() {
+            if (kind != DialogNode.Kind.CUSTOM && next == null
+                || kind == DialogNode.Kind.YES_NO && nextNo == null
+                || kind == DialogNode.Kind.TEXT && field == null) {
+                throw new IllegalStateException("Incomplete dialog node: " + state);
+            }
+            return new DialogNode(state, kind, promptKey, options, validator, field, normalizer,
+                derivedField, derivation, echoKey, yesField, noField, next, nextNo, handler);
+        }
+    }
+}
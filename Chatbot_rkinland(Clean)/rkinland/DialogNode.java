@@ -0,0 +1,134 @@
+package rkinland;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * One state of the dialog graph: what to ask and what to do with the answer
+ * Nodes are immutable and shared by all conversations; they are created by DialogGraph.
+ */
+public final class DialogNode {
+    
+    /**
+     * How the answer of a node is interpreted
+     */
+    public enum Kind {
+        /** Free text, optionally validated, stored in one field */
+        TEXT,
+        /** Yes/no question, each answer may set a flag field */
+        YES_NO,
+        /** Numbered menu, the selected option sets its flag field */
+        CHOICE,
+        /** Numbered menu accepting a comma-separated list of options */
+        MULTI_CHOICE,
+        /** Answer handled by code (see DialogNode.Handler) */
+        CUSTOM
+    }
+    
+    /**
+     * Next-state function, evaluated after the answer has been stored
+     */
+    public interface Transition {
+        ChatbotState next(DialogEngine engine);
+    }
+    
+    /**
+     * Answer handler for CUSTOM nodes
+     * @return the next state, or null if the answer was rejected and the question stays open
+     */
+    public interface Handler {
+        ChatbotState handle(DialogEngine engine, String userInput);
+    }
+    
+    /**
+     * Menu entry: label key and the flag field set when it is selected
+     * @throws IllegalArgumentException if the label key is in no language file
+     */
+    public static final class Option {
+        public final String labelKey;
+        public final int labelId;
+        public final String field;
+        
+        public Option(String labelKey, String field) {
+            this.labelKey = labelKey;
+            this.labelId = Messages.id(labelKey);
+            this.field = field;
+        }
+    }
+    
+    final ChatbotState state;
+    final Kind kind;
+    
+    // Question, or header of a menu
+    final String promptKey;
+    final int promptId;
+    final List<Option> options;
+    
+    // TEXT: validator, target field and value normalization
+    final Validator validator;
+    final int errorId;
+    final Function<Map<String, String>, String> field;
+    final UnaryOperator<String> normalizer;
+    
+    // Field computed from the form data after the answer has been stored (e.g. the full name)
+    final String derivedField;
+    final Function<Map<String, String>, String> derivation;
+    
+    // CHOICE: key used to confirm the selection ("<echo>: <label>")
+    final String echoKey;
+    final int echoId;
+    
+    // YES_NO: flag fields for both answers; "next" is used for yes and for all other kinds
+    final String yesField;
+    final String noField;
+    final Transition next;
+    final Transition nextNo;
+    
+    final Handler handler;
+    
+    DialogNode(ChatbotState state, Kind kind, String promptKey, List<Option> options,
+               Validator validator,
+               Function<Map<String, String>, String> field, UnaryOperator<String> normalizer,
+               String derivedField, Function<Map<String, String>, String> derivation,
+               String echoKey, String yesField, String noField,
+               Transition next, Transition nextNo, Handler handler) {
+        this.state = state;
+        this.kind = kind;
+        this.promptKey = promptKey;
+        // Message ids are resolved here, so a key missing in the language files stops the graph from being built
+        this.promptId = Messages.id(promptKey);
+        this.options = Collections.unmodifiableList(options);
+        this.validator = validator;
+        this.errorId = validator != null ? Messages.id(validator.getErrorKey()) : -1;
+        this.field = field;
+        this.normalizer = normalizer;
+        this.derivedField = derivedField;
+        this.derivation = derivation;
+        this.echoKey = echoKey;
+        this.echoId = echoKey != null ? Messages.id(echoKey) : -1;
+        this.yesField = yesField;
+        this.noField = noField;
+        this.next = next;
+        this.nextNo = nextNo;
+        this.handler = handler;
+    }
+    
+    public ChatbotState getState() {
+        return state;
+    }
+    
+    public Kind getKind() {
+        return kind;
+    }
+    
+    public String getPromptKey() {
+        return promptKey;
+    }
+    
+    public List<Option> getOptions() {
+        return options;
+    }
+}
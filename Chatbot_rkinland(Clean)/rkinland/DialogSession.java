@@ -0,0 +1,127 @@
+package rkinland;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * State of one conversation: current question, collected form data and the dialog counters
+ * A session belongs to exactly one user; DialogEngine works on it, the graph and the
+ * validators are shared by all sessions. Not thread-safe, callers serialize access per session.
+ */
+public final class DialogSession {
+    
+    /**
+     * Receives every change of the session, e.g. to write it to a SessionJournal
+     */
+    public interface ChangeListener {
+        void stateChanged(ChatbotState state);
+        
+        void fieldWritten(String field, String value);
+        
+        void hotelCountChanged(int hotelAnzahl);
+        
+        void exportRequestedChanged(boolean exportRequested);
+        
+        void languageChanged(Locale language);
+    }
+    
+    private static final ChangeListener NO_LISTENER = new ChangeListener() {
+        @Override
+        public void stateChanged(ChatbotState state) {
+        }
+        
+        @Override
+        public void fieldWritten(String field, String value) {
+        }
+        
+        @Override
+        public void hotelCountChanged(int hotelAnzahl) {
+        }
+        
+        @Override
+        public void exportRequestedChanged(boolean exportRequested) {
+        }
+        
+        @Override
+        public void languageChanged(Locale language) {
+        }
+    };
+    
+    private ChatbotState currentState = ChatbotState.LANGUAGE_SELECTION;
+    private final ClaimRecord claim = new ClaimRecord();
+    private final Map<String, String> formDataView = Collections.unmodifiableMap(claim.asMap());
+    private int hotelAnzahl = 1;
+    private boolean exportRequested;
+    private Locale language;
+    private ChangeListener changeListener = NO_LISTENER;
+    
+    /**
+     * Report all further changes to a listener, null to stop reporting
+     */
+    public void setChangeListener(ChangeListener changeListener) {
+        this.changeListener = changeListener != null ? changeListener : NO_LISTENER;
+    }
+    
+    public ChatbotState getCurrentState() {
+        return currentState;
+    }
+    
+    void setCurrentState(ChatbotState currentState) {
+        this.currentState = currentState;
+        changeListener.stateChanged(currentState);
+    }
+    
+    /**
+     * Form data collected so far, keyed by the PDF field names used by PdfFormFiller
+     * The map is a read-only view; fields are written with put, so every write is reported.
+     */
+    public Map<String, String> getFormData() {
+        return formDataView;
+    }
+    
+    /**
+     * Snapshot of the form data as claim record, e.g. for PdfFormFiller
+     */
+    public ClaimRecord copyClaim() {
+        return claim.copy();
+    }
+    
+    void put(String field, String value) {
+        claim.put(field, value);
+        changeListener.fieldWritten(field, value);
+    }
+    
+    public int getHotelAnzahl() {
+        return hotelAnzahl;
+    }
+    
+    void setHotelAnzahl(int hotelAnzahl) {
+        this.hotelAnzahl = hotelAnzahl;
+        changeListener.hotelCountChanged(hotelAnzahl);
+    }
+    
+    /**
+     * True once the user has answered the final question with yes
+     */
+    public boolean isExportRequested() {
+        return exportRequested;
+    }
+    
+    void setExportRequested(boolean exportRequested) {
+        this.exportRequested = exportRequested;
+        changeListener.exportRequestedChanged(exportRequested);
+    }
+    
+    /**
+     * Language the user switched to during the conversation, null if it was not changed
+     */
+    public Locale getLanguage() {
+        return language;
+    }
+    
+    void setLanguage(Locale language) {
+        this.language = language;
+        changeListener.languageChanged(language);
+    }
+}
@@ -0,0 +1,92 @@
+package rkinland;
+
+import java.io.IOException;
+
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.pdf.BaseFont;
+
+/**
+ * Process-wide fonts for the overlays and form fields of the filled form
+ * Helvetica (CP1252, not embedded) is created once and used for every text it can print.
+ * If the system property rkinland.font names a TrueType/OpenType file, that font is loaded
+ * once as well and embedded with Identity-H encoding for the other texts (e.g. Polish or
+ * Turkish names); each document only gets the subset of the glyphs it uses.
+ */
+public final class FontCache {
+    
+    /** System property with the file of the Unicode font, e.g. -Drkinland.font=/usr/share/fonts/truetype/dejavu/DejaVuSans.ttf */
+    public static final String FONT_PROPERTY = "rkinland.font";
+    
+    private static FontCache shared;
+    
+    private final BaseFont latinFont;
+    private final BaseFont unicodeFont;
+    
+    private FontCache(BaseFont latinFont, BaseFont unicodeFont) {
+        this.latinFont = latinFont;
+        this.unicodeFont = unicodeFont;
+    }
+    
+    /**
+     * Get the fonts shared by all generations, loading them on first use
+     * @throws IOException if the font given in rkinland.font cannot be read
+     */
+    public static synchronized FontCache shared() throws IOException, DocumentException {
+        if (shared == null) {
+            shared = create(System.getProperty(FONT_PROPERTY));
+        }
+        return shared;
+    }
+    
+    /**
+     * Create the fonts, with the Unicode font from the given file if it is not null or empty
+     */
+    public static FontCache create(String unicodeFontFile) throws IOException, DocumentException {
+        BaseFont latin = BaseFont.createFont(BaseFont.HELVETICA, BaseFont.CP1252, BaseFont.NOT_EMBEDDED);
+        BaseFont unicode = null;
+        if (unicodeFontFile != null && !unicodeFontFile.isEmpty()) {
+            try {
+                unicode = BaseFont.createFont(unicodeFontFile, BaseFont.IDENTITY_H, BaseFont.EMBEDDED);
+            } catch (IOException e) {
+                throw new IOException("Font " + unicodeFontFile + " (" + FONT_PROPERTY + ") could not be loaded: " + e.getMessage(), e);
+            }
+        }
+        return new FontCache(latin, unicode);
+    }
+    
+    /**
+     * Embedded Unicode font, null if none is configured
+     */
+    public BaseFont getUnicodeFont() {
+        return unicodeFont;
+    }
+    
+    /**
+     * Font for a text: Helvetica if it can print all characters, else the Unicode font if there is one
+     */
+    public BaseFont fontFor(String text) {
+        if (unicodeFont == null || canDisplay(latinFont, text)) {
+            return latinFont;
+        }
+        return unicodeFont;
+    }
+    
+    /**
+     * True if one of the fonts can print all characters of the text
+     */
+    public boolean canDisplay(String text) {
+        return canDisplay(latinFont, text) || (unicodeFont != null && canDisplay(unicodeFont, text));
+    }
+    
+    private static boolean canDisplay(BaseFont font, String text) {
+        for (int i = 0; i < text.length(); ) {
+            int c = text.codePointAt(i);
+            // Printable ASCII is in every font
+            if ((c < 0x20 || c > 0x7E) && !font.charExists(c)) {
+                return false;
+            }
+            i += Character.charCount(c);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,213 @@
+package rkinland;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Localized texts of the chatbot (TravelExpenseChatbot_de/en.properties)
+ * Every key gets a message id when the class is loaded, the same for all languages. The texts of
+ * a language are resolved once into an array indexed by that id, so a lookup is an array access;
+ * a key missing in one of the files fails forLocale instead of showing up as [key] in the chat.
+ * Menus and messages with %s placeholders are prepared on first use and then reused.
+ */
+public final class Messages {
+    
+    private static final String BUNDLE = "TravelExpenseChatbot";
+    
+    /** Languages the chatbot has texts for */
+    public static final List<Locale> LOCALES = Collections.unmodifiableList(Arrays.asList(Locale.GERMAN, Locale.ENGLISH));
+    
+    // Message id = index in KEYS; the keys of all languages, sorted
+    private static final String[] KEYS;
+    private static final Map<String, Integer> IDS = new HashMap<>();
+    
+    static {
+        TreeSet<String> keys = new TreeSet<>();
+        for (Locale locale : LOCALES) {
+            keys.addAll(loadBundle(locale).keySet());
+        }
+        KEYS = keys.toArray(new String[0]);
+        for (int id = 0; id < KEYS.length; id++) {
+            IDS.put(KEYS[id], id);
+        }
+    }
+    
+    private static final ConcurrentMap<Locale, Messages> BY_LOCALE = new ConcurrentHashMap<>();
+    
+    private final Locale locale;
+    private final String[] texts;
+    // Split on first use by getFormattedMessage
+    private final AtomicReferenceArray<Template> templates;
+    // Numbered menu lines ("1: label") per option list of the dialog graph
+    private final ConcurrentMap<List<DialogNode.Option>, List<String>> menus = new ConcurrentHashMap<>();
+    
+    private Messages(Locale locale, String[] texts) {
+        this.locale = locale;
+        this.texts = texts;
+        this.templates = new AtomicReferenceArray<>(texts.length);
+    }
+    
+    /**
+     * Texts of a locale, resolved on the first request and shared afterwards
+     * @throws MissingResourceException if the language file lacks keys the other files have
+     */
+    public static Messages forLocale(Locale locale) {
+        Messages messages = BY_LOCALE.get(locale);
+        if (messages == null) {
+            messages = BY_LOCALE.computeIfAbsent(locale, Messages::resolve);
+        }
+        return messages;
+    }
+    
+    private static Messages resolve(Locale locale) {
+        ResourceBundle bundle = loadBundle(locale);
+        String[] texts = new String[KEYS.length];
+        List<String> missing = new ArrayList<>();
+        for (int id = 0; id < KEYS.length; id++) {
+            if (bundle.containsKey(KEYS[id])) {
+                texts[id] = bundle.getString(KEYS[id]);
+            } else {
+                missing.add(KEYS[id]);
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new MissingResourceException("Missing texts for " + locale + " in " + BUNDLE + ": " + String.join(", ", missing),
+                BUNDLE, missing.get(0));
+        }
+        return new Messages(locale, texts);
+    }
+    
+    private static ResourceBundle loadBundle(Locale locale) {
+        // Get the current class loader for resource loading
+        ClassLoader loader = Messages.class.getClassLoader();
+        return ResourceBundle.getBundle(BUNDLE, locale, loader);
+    }
+    
+    /**
+     * Message id of a key, for getMessage(int)
+     * @throws IllegalArgumentException if no language file has the key
+     */
+    public static int id(String key) {
+        Integer id = IDS.get(key);
+        if (id == null) {
+            throw new IllegalArgumentException("Unknown message key: " + key);
+        }
+        return id;
+    }
+    
+    public Locale getLocale() {
+        return locale;
+    }
+    
+    /**
+     * Get a localized message by its id
+     */
+    public String getMessage(int id) {
+        return texts[id];
+    }
+    
+    /**
+     * Get a localized message from the resource bundle
+     */
+    public String getMessage(String key) {
+        Integer id = IDS.get(key);
+        return id != null ? texts[id] : "[" + key + "]";
+    }
+    
+    /**
+     * Get a formatted message with parameters
+     * Messages with only %s placeholders are split once and filled without String.format.
+     */
+    public String getFormattedMessage(String key, Object... args) {
+        Integer id = IDS.get(key);
+        if (id == null) {
+            return String.format(getMessage(key), args);
+        }
+        
+        Template template = templates.get(id);
+        if (template == null) {
+            template = Template.parse(texts[id]);
+            templates.set(id, template);
+        }
+        return template.format(texts[id], args);
+    }
+    
+    /**
+     * Lines of a numbered menu ("1: <label>"), built once per option list
+     */
+    public List<String> menu(List<DialogNode.Option> options) {
+        List<String> lines = menus.get(options);
+        if (lines == null) {
+            String[] built = new String[options.size()];
+            for (int i = 0; i < built.length; i++) {
+                built[i] = (i + 1) + ": " + getMessage(options.get(i).labelId);
+            }
+            lines = Collections.unmodifiableList(Arrays.asList(built));
+            menus.putIfAbsent(options, lines);
+        }
+        return lines;
+    }
+    
+    /**
+     * Message split at its %s placeholders
+     */
+    private static final class Template {
+        // Used for messages with other conversions (e.g. %d), which go through String.format
+        static final Template FORMAT = new Template(null);
+        
+        private final String[] parts;
+        
+        private Template(String[] parts) {
+            this.parts = parts;
+        }
+        
+        static Template parse(String text) {
+            List<String> parts = new ArrayList<>();
+            StringBuilder part = new StringBuilder();
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c != '%') {
+                    part.append(c);
+                    continue;
+                }
+                char conversion = i + 1 < text.length() ? text.charAt(++i) : 0;
+                if (conversion == 's') {
+                    parts.add(part.toString());
+                    part.setLength(0);
+                } else if (conversion == '%') {
+                    part.append('%');
+                } else if (conversion == 'n') {
+                    part.append(System.lineSeparator());
+                } else {
+                    return FORMAT;
+                }
+            }
+            parts.add(part.toString());
+            return new Template(parts.toArray(new String[0]));
+        }
+        
+        String format(String text, Object[] args) {
+            // Missing arguments are reported by String.format as before
+            if (parts == null || args.length < parts.length - 1) {
+                return String.format(text, args);
+            }
+            StringBuilder formatted = new StringBuilder(text.length() + 32);
+            formatted.append(parts[0]);
+            for (int i = 1; i < parts.length; i++) {
+                formatted.append(args[i - 1]).append(parts[i]);
+            }
+            return formatted.toString();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package rkinland;
+
+import java.util.Map;
+
+/**
+ * JMX view of the Metrics, registered as rkinland:type=Metrics
+ */
+public interface MetricsMXBean {
+    
+    /**
+     * Counters by name, e.g. turns, reasks, pdf.generated
+     */
+    Map<String, Long> getCounters();
+    
+    /**
+     * Latency summaries by name, e.g. turn.PERSONAL_NAME, turn.validation, pdf.write
+     */
+    Map<String, LatencyHistogram.Snapshot> getLatencies();
+    
+    /**
+     * All counters and latencies as text
+     */
+    String dump();
+    
+    void reset();
+}
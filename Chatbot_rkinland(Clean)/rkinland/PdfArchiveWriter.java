@@ -0,0 +1,217 @@
+package rkinland;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.pdf.PdfCopy;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.PdfSmartCopy;
+
+/**
+ * Batch output into one file: a ZIP archive of the PDFs, or one merged PDF with all claims
+ * The workers fill into pooled buffers and hand them in with submit(); a single writer thread
+ * appends them in the order they arrive. The queue between them holds at most depth PDFs, so
+ * memory is bounded by the pipeline depth and not by the number of claims. The merged PDF is
+ * written with PdfSmartCopy, which stores the resources of the template (fonts, images) once.
+ */
+public final class PdfArchiveWriter implements Closeable {
+    
+    /**
+     * Kind of the output file
+     */
+    public enum Format {
+        /** ZIP archive with one PDF per claim */
+        ZIP,
+        /** One PDF with the pages of all claims; the forms have to be filled flattened */
+        MERGED_PDF
+    }
+    
+    // Size of the pooled buffers, a filled form is about 1.5 MB
+    private static final int BUFFER_SIZE = 2 * 1024 * 1024;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 4 * 1024 * 1024;
+    
+    private static final class Entry {
+        final String name;
+        final PdfBufferPool.Buffer pdf;
+        
+        Entry(String name, PdfBufferPool.Buffer pdf) {
+            this.name = name;
+            this.pdf = pdf;
+        }
+    }
+    
+    // Marks the end of the input for the writer thread
+    private static final Entry END = new Entry(null, null);
+    
+    private final File file;
+    private final Format format;
+    private final ArrayBlockingQueue<Entry> queue;
+    private final PdfBufferPool buffers;
+    private final Thread writerThread;
+    
+    private final OutputStream out;
+    private ZipOutputStream zip;
+    private Document document;
+    private PdfCopy copy;
+    
+    // Set by the writer thread, which then only drains the queue
+    private volatile Exception failure;
+    private int written;
+    
+    /**
+     * Create the output file and start the writer thread
+     * @param depth number of filled PDFs that may wait for the writer
+     */
+    public PdfArchiveWriter(File file, Format format, int depth) throws IOException {
+        this.file = file;
+        this.format = format;
+        this.queue = new ArrayBlockingQueue<>(depth);
+        // Buffers in use: the waiting ones, one per filling worker and the one being written
+        this.buffers = new PdfBufferPool(depth * 2, BUFFER_SIZE, MAX_RETAINED_BUFFER_SIZE);
+        this.out = new BufferedOutputStream(new FileOutputStream(file), 256 * 1024);
+        
+        if (format == Format.ZIP) {
+            zip = new ZipOutputStream(out);
+            // The PDF streams are compressed already
+            zip.setLevel(Deflater.BEST_SPEED);
+        }
+        
+        writerThread = new Thread(this::writeEntries, "pdf-archive-writer");
+        writerThread.start();
+    }
+    
+    public Format getFormat() {
+        return format;
+    }
+    
+    /**
+     * Buffer to fill a PDF into; hand it in with submit, or back with discard if the filling failed
+     */
+    public PdfBufferPool.Buffer newBuffer() {
+        return buffers.acquire();
+    }
+    
+    public void discard(PdfBufferPool.Buffer pdf) {
+        buffers.release(pdf);
+    }
+    
+    /**
+     * Queue a filled PDF for the archive, waiting while the queue is full
+     * @param name entry name in the ZIP archive
+     * @throws IOException if the archive could not be written; the buffer is taken back in any case
+     */
+    public void submit(String name, PdfBufferPool.Buffer pdf) throws IOException, InterruptedException {
+        if (failure != null) {
+            buffers.release(pdf);
+            throw new IOException("Could not write " + file + ": " + failure.getMessage(), failure);
+        }
+        queue.put(new Entry(name, pdf));
+    }
+    
+    /**
+     * Number of PDFs written so far
+     */
+    public synchronized int getWrittenCount() {
+        return written;
+    }
+    
+    private void writeEntries() {
+        while (true) {
+            Entry entry;
+            try {
+                entry = queue.take();
+            } catch (InterruptedException e) {
+                failure = e;
+                return;
+            }
+            if (entry == END) {
+                return;
+            }
+            
+            try {
+                if (failure == null) {
+                    writeEntry(entry);
+                    synchronized (this) {
+                        written++;
+                    }
+                }
+            } catch (IOException | DocumentException | RuntimeException e) {
+                failure = e;
+            } finally {
+                buffers.release(entry.pdf);
+            }
+        }
+    }
+    
+    private void writeEntry(Entry entry) throws IOException, DocumentException {
+        if (format == Format.ZIP) {
+            zip.putNextEntry(new ZipEntry(entry.name));
+            entry.pdf.writeTo(zip);
+            zip.closeEntry();
+            return;
+        }
+        
+        PdfReader reader = new PdfReader(entry.pdf.toInputStream());
+        try {
+            if (document == null) {
+                document = new Document();
+                copy = new PdfSmartCopy(document, out);
+                document.open();
+            }
+            for (int page = 1; page <= reader.getNumberOfPages(); page++) {
+                copy.addPage(copy.getImportedPage(reader, page));
+            }
+            // Drop what was kept of this claim's objects, the next claim brings its own
+            copy.freeReader(reader);
+        } finally {
+            reader.close();
+        }
+    }
+    
+    /**
+     * Write the PDFs still queued and finish the file
+     * A merged PDF without any page is deleted.
+     * @throws IOException if the archive could not be written completely
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            queue.put(END);
+            writerThread.join();
+        } catch (InterruptedException e) {
+            writerThread.interrupt();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while finishing " + file);
+        } finally {
+            closeOutput();
+        }
+        if (failure != null) {
+            throw new IOException("Could not write " + file + ": " + failure.getMessage(), failure);
+        }
+    }
+    
+    private void closeOutput() throws IOException {
+        if (zip != null) {
+            zip.close();
+        } else if (document != null) {
+            // Closing the document writes the cross-reference table and closes the stream
+            document.close();
+        } else {
+            out.close();
+            if (format == Format.MERGED_PDF) {
+                file.delete();
+            }
+        }
+    }
+}
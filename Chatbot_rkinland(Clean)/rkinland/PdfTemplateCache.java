@@ -0,0 +1,97 @@
+package rkinland;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.itextpdf.text.pdf.PdfReader;
+
+/**
+ * Process-wide cache for the parsed PDF form template (rkinland.pdf)
+ * The template is read and parsed once; every PDF generation then works on a cheap
+ * copy of the parsed object tree. The template is reloaded when the file on disk changes.
+ */
+public final class PdfTemplateCache {
+    
+    private static final Map<File, PdfTemplateCache> CACHES = new ConcurrentHashMap<>();
+    
+    private final File templateFile;
+    
+    // Parsed template, never handed out or modified directly
+    private PdfReader template;
+    // The file content the template was parsed from, identifies the loaded version
+    private byte[] templateBytes;
+    private long loadedLastModified;
+    private long loadedLength;
+    
+    private PdfTemplateCache(File templateFile) {
+        this.templateFile = templateFile;
+    }
+    
+    /**
+     * Get the shared cache for a template file
+     */
+    public static PdfTemplateCache forFile(File templateFile) {
+        return CACHES.computeIfAbsent(templateFile.getAbsoluteFile(), PdfTemplateCache::new);
+    }
+    
+    /**
+     * Get the template file this cache belongs to
+     */
+    public File getTemplateFile() {
+        return templateFile;
+    }
+    
+    /**
+     * Open a private copy of the template for one PDF generation
+     * The caller owns the returned reader and has to close it.
+     */
+    public PdfReader openReader() throws IOException {
+        // Copying the parsed objects is much cheaper than parsing cross-reference table and AcroForm again
+        return new PdfReader(currentTemplate());
+    }
+    
+    /**
+     * Content of the current template file, as read for the parsed template
+     * The same array is returned until the template is reloaded, so comparing the reference tells
+     * whether the template changed. The caller must not modify it.
+     */
+    public synchronized byte[] currentBytes() throws IOException {
+        currentTemplate();
+        return templateBytes;
+    }
+    
+    /**
+     * Drop the parsed template so the next generation reads the file again
+     */
+    public synchronized void invalidate() {
+        template = null;
+        templateBytes = null;
+    }
+    
+    /**
+     * Return the parsed template, (re)loading it if the file changed since the last load
+     */
+    private synchronized PdfReader currentTemplate() throws IOException {
+        long lastModified = templateFile.lastModified();
+        long length = templateFile.length();
+        
+        if (template == null || lastModified != loadedLastModified || length != loadedLength) {
+            if (!templateFile.isFile()) {
+                throw new IOException("PDF template not found: " + templateFile);
+            }
+            
+            // Load the bytes completely so copies never touch the file again.
+            // A replaced template is not closed, copies taken from it may still be in use.
+            byte[] bytes = Files.readAllBytes(templateFile.toPath());
+            template = new PdfReader(bytes);
+            templateBytes = bytes;
+            loadedLastModified = lastModified;
+            loadedLength = length;
+        }
+        
+        return template;
+    }
+}
@@ -0,0 +1,274 @@
+package rkinland;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only journal of a DialogSession, so an interrupted conversation can be resumed
+ * Every state transition and field write becomes one line. The lines are collected in memory
+ * and written and fsynced in batches every SYNC_INTERVAL_MILLIS by a background thread, so
+ * an answer costs a StringBuilder append on the caller's thread. A crash loses at most the
+ * changes of the last interval; a torn last line is ignored on replay.
+ *
+ * Line format (tab separated, \t \n \\ escaped in values):
+ *   L  language tag (again when the user switches)      S  ChatbotState      F  field  value
+ *   H  hotel count       E  0|1 export requested
+ */
+public final class SessionJournal implements DialogSession.ChangeListener, Closeable {
+    
+    // Upper bound for the changes lost in a crash
+    static final long SYNC_INTERVAL_MILLIS = 200;
+    
+    // Suffix of a journal whose conversation has ended; such journals are not resumed
+    public static final String COMPLETED_SUFFIX = ".completed";
+    
+    private static final ScheduledExecutorService SYNCER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "session-journal-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    /**
+     * Session restored from a journal, with the language of the conversation
+     */
+    public static final class Recovered {
+        public final Locale locale;
+        public final DialogSession session;
+        
+        Recovered(Locale locale, DialogSession session) {
+            this.locale = locale;
+            this.session = session;
+        }
+    }
+    
+    private final Path file;
+    private final FileChannel channel;
+    private final ScheduledFuture<?> syncTask;
+    
+    // Lines not yet written, guarded by this
+    private StringBuilder pending = new StringBuilder(1024);
+    private boolean closed;
+    
+    private SessionJournal(Path file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+        this.syncTask = SYNCER.scheduleWithFixedDelay(this::syncQuietly, SYNC_INTERVAL_MILLIS, SYNC_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Start a new journal for a conversation in the given language, replacing an old one
+     */
+    public static SessionJournal create(Path file, Locale locale) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        SessionJournal journal = new SessionJournal(file, channel);
+        journal.record('L', locale.toLanguageTag());
+        return journal;
+    }
+    
+    /**
+     * Continue writing a journal after it has been replayed
+     */
+    public static SessionJournal append(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        return new SessionJournal(file, channel);
+    }
+    
+    /**
+     * Rebuild the session recorded in a journal
+     * @return the session, or null if there is no journal
+     */
+    public static Recovered replay(Path file) throws IOException {
+        Locale locale = Locale.GERMAN;
+        DialogSession session = new DialogSession();
+        
+        String content;
+        try {
+            content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        
+        // A last line without line break was torn by a crash and is ignored
+        for (String line : content.substring(0, content.lastIndexOf('\n') + 1).split("\n")) {
+            if (line.length() < 2 || line.charAt(1) != '\t') {
+                continue;
+            }
+            String[] values = line.substring(2).split("\t", -1);
+            try {
+                switch (line.charAt(0)) {
+                    case 'L':
+                        locale = Locale.forLanguageTag(values[0]);
+                        break;
+                    case 'S':
+                        session.setCurrentState(ChatbotState.valueOf(values[0]));
+                        break;
+                    case 'F':
+                        session.put(unescape(values[0]), unescape(values[1]));
+                        break;
+                    case 'H':
+                        session.setHotelAnzahl(Integer.parseInt(values[0]));
+                        break;
+                    case 'E':
+                        session.setExportRequested("1".equals(values[0]));
+                        break;
+                    default:
+                        break;
+                }
+            } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+                // Unknown or damaged line, skipped
+            }
+        }
+        return new Recovered(locale, session);
+    }
+    
+    @Override
+    public void stateChanged(ChatbotState state) {
+        record('S', state.name());
+    }
+    
+    @Override
+    public void fieldWritten(String field, String value) {
+        record('F', escape(field) + '\t' + escape(value));
+    }
+    
+    @Override
+    public void hotelCountChanged(int hotelAnzahl) {
+        record('H', Integer.toString(hotelAnzahl));
+    }
+    
+    @Override
+    public void exportRequestedChanged(boolean exportRequested) {
+        record('E', exportRequested ? "1" : "0");
+    }
+    
+    @Override
+    public void languageChanged(Locale language) {
+        record('L', language.toLanguageTag());
+    }
+    
+    private synchronized void record(char type, String value) {
+        if (!closed) {
+            pending.append(type).append('\t').append(value).append('\n');
+        }
+    }
+    
+    /**
+     * Write and fsync all pending lines
+     */
+    public void sync() throws IOException {
+        // One writer at a time (sync thread or close), so the batches stay in order
+        synchronized (channel) {
+            StringBuilder lines;
+            synchronized (this) {
+                if (pending.length() == 0 || !channel.isOpen()) {
+                    return;
+                }
+                lines = pending;
+                pending = new StringBuilder(1024);
+            }
+            ByteBuffer buffer = StandardCharsets.UTF_8.encode(lines.toString());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+    
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (IOException e) {
+            System.err.println("Warning: Could not write session journal " + file + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Write the pending lines and close the file; the journal can be replayed later
+     */
+    @Override
+    public void close() throws IOException {
+        syncTask.cancel(false);
+        try {
+            sync();
+        } finally {
+            synchronized (this) {
+                closed = true;
+            }
+            synchronized (channel) {
+                channel.close();
+            }
+        }
+    }
+    
+    /**
+     * Close the journal of a finished conversation and rename it to <file>.completed
+     */
+    public void complete() throws IOException {
+        close();
+        Path target = file.resolveSibling(file.getFileName() + COMPLETED_SUFFIX);
+        try {
+            Files.move(file, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+    
+    private static String escape(String value) {
+        if (value.indexOf('\t') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0 && value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder escaped = new StringBuilder(value.length() + 8);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\t':
+                    escaped.append("\\t");
+                    break;
+                case '\n':
+                    escaped.append("\\n");
+                    break;
+                case '\r':
+                    escaped.append("\\r");
+                    break;
+                case '\\':
+                    escaped.append("\\\\");
+                    break;
+                default:
+                    escaped.append(c);
+                    break;
+            }
+        }
+        return escaped.toString();
+    }
+    
+    private static String unescape(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder unescaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                unescaped.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                unescaped.append(c);
+            }
+        }
+        return unescaped.toString();
+    }
+}
@@ -0,0 +1,259 @@
+package rkinland;
+
+import java.util.function.Predicate;
+
+/**
+ * Input validators of the dialog, also used by the batch mode
+ * Every validator is a single pass over the characters of the input: no regular expressions,
+ * formatters or temporary strings, so a check does not allocate. Apart from the IBAN checksum the
+ * accepted inputs are the same as with the former Pattern/DateTimeFormatter based checks,
+ * except for years after 9999.
+ */
+public enum Validator implements Predicate<String> {
+    
+    /**
+     * Email address: [A-Za-z0-9+_.-]+ before the first @, something after it, a dot somewhere, no blanks
+     */
+    EMAIL("error.invalidEmail") {
+        @Override
+        public boolean test(String email) {
+            int at = email.indexOf('@');
+            if (at < 1 || at == email.length() - 1 || email.indexOf('.') < 0 || email.indexOf(' ') >= 0) {
+                return false;
+            }
+            for (int i = 0; i < at; i++) {
+                char c = email.charAt(i);
+                if (!isAsciiLetter(c) && !isDigit(c) && c != '+' && c != '_' && c != '.' && c != '-') {
+                    return false;
+                }
+            }
+            for (int i = at + 1; i < email.length(); i++) {
+                if (isLineTerminator(email.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    },
+    
+    /**
+     * Phone number: digits, + - ( ) and whitespace, at least 6 digits
+     */
+    PHONE("error.invalidPhone") {
+        @Override
+        public boolean test(String phone) {
+            int digitCount = 0;
+            for (int i = 0; i < phone.length(); i++) {
+                char c = phone.charAt(i);
+                if (isDigit(c)) {
+                    digitCount++;
+                } else if (c != '+' && c != '-' && c != '(' && c != ')' && !isRegexWhitespace(c)) {
+                    return false;
+                }
+            }
+            return digitCount >= 6;
+        }
+    },
+    
+    /**
+     * IBAN, blanks allowed: country code, two check digits, the length registered for the country
+     * (15 to 34 characters for countries not in the table) and the ISO 13616 mod-97 checksum
+     */
+    IBAN("error.invalidIBAN") {
+        @Override
+        public boolean test(String iban) {
+            int length = 0;
+            int expectedLength = 0;
+            // Country code and check digits, moved behind the BBAN by the checksum rule
+            int head = 0;
+            int remainder = 0;
+            
+            for (int i = 0; i < iban.length(); i++) {
+                char c = iban.charAt(i);
+                if (c == ' ') {
+                    continue;
+                }
+                
+                int value;
+                if (isDigit(c)) {
+                    value = c - '0';
+                } else if (isAsciiLetter(c)) {
+                    value = (c & ~0x20) - 'A' + 10;
+                } else {
+                    return false;
+                }
+                
+                if (length < 2) {
+                    if (value < 10) {
+                        return false;
+                    }
+                    head = head * 100 + value;
+                    if (length == 1) {
+                        expectedLength = IBAN_LENGTHS[(head / 100 - 10) * 26 + head % 100 - 10];
+                    }
+                } else if (length < 4) {
+                    if (value >= 10) {
+                        return false;
+                    }
+                    head = head * 10 + value;
+                } else {
+                    // Letters count as two digits (A = 10 ... Z = 35)
+                    remainder = (remainder * (value < 10 ? 10 : 100) + value) % 97;
+                }
+                
+                length++;
+                if (length > 34) {
+                    return false;
+                }
+            }
+            
+            boolean validLength = expectedLength > 0 ? length == expectedLength : length >= 15;
+            // Country code and check digits always make six digits
+            return validLength && (remainder * MILLION_MOD_97 + head) % 97 == 1;
+        }
+    },
+    
+    /**
+     * BIC: 4 letters bank code, 2 letters country code, 2 or 5 alphanumeric characters
+     */
+    BIC("error.invalidBIC") {
+        @Override
+        public boolean test(String bic) {
+            // Same bounds as String.trim()
+            int start = 0;
+            int end = bic.length();
+            while (start < end && bic.charAt(start) <= ' ') {
+                start++;
+            }
+            while (end > start && bic.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            
+            int length = end - start;
+            if (length != 8 && length != 11) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                char c = bic.charAt(start + i);
+                if (!(isAsciiLetter(c) || i >= 6 && isDigit(c))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    },
+    
+    /**
+     * Date in DD.MM.YYYY format
+     * Like the former DateTimeFormatter ("dd.MM.yyyy", smart resolver) any day up to 31 is accepted.
+     */
+    DATE("error.invalidDate") {
+        @Override
+        public boolean test(String date) {
+            if (date.length() != 10 || date.charAt(2) != '.' || date.charAt(5) != '.') {
+                return false;
+            }
+            int day = twoDigits(date, 0);
+            int month = twoDigits(date, 3);
+            int century = twoDigits(date, 6);
+            int yearOfCentury = twoDigits(date, 8);
+            return day >= 1 && day <= 31 && month >= 1 && month <= 12
+                && century >= 0 && yearOfCentury >= 0 && century + yearOfCentury > 0;
+        }
+    },
+    
+    /**
+     * Time in HH:MM format, 24:00 is accepted as end of day (smart resolver of the former DateTimeFormatter)
+     */
+    TIME("error.invalidTime") {
+        @Override
+        public boolean test(String time) {
+            if (time.length() != 5 || time.charAt(2) != ':') {
+                return false;
+            }
+            int hour = twoDigits(time, 0);
+            int minute = twoDigits(time, 3);
+            return hour >= 0 && hour <= 23 && minute >= 0 && minute <= 59 || hour == 24 && minute == 0;
+        }
+    },
+    
+    /**
+     * Personnel number: exactly 11 digits
+     */
+    PERSONAL_NUMBER("error.invalidPersonalNumber") {
+        @Override
+        public boolean test(String personalNumber) {
+            if (personalNumber.length() != 11) {
+                return false;
+            }
+            for (int i = 0; i < personalNumber.length(); i++) {
+                if (!isDigit(personalNumber.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    };
+    
+    private static final int MILLION_MOD_97 = 1_000_000 % 97;
+    
+    // IBAN length by country code (ISO 13616 registry), index (first letter) * 26 + (second letter), 0 if unknown
+    private static final byte[] IBAN_LENGTHS = createIbanLengths(
+        "AD24 AE23 AL28 AT20 AZ28 BA20 BE16 BG22 BH22 BI27 BR29 BY28 CH21 CR22 CY28 CZ24 DE22 DJ27 DK18 DO28 "
+        + "EE20 EG29 ES24 FI18 FK18 FO18 FR27 GB22 GE22 GI23 GL18 GR27 GT28 HN28 HR21 HU28 IE22 IL23 IQ23 IS26 "
+        + "IT27 JO30 KW30 KZ20 LB28 LC32 LI21 LT20 LU20 LV21 LY25 MC27 MD24 ME22 MK19 MN20 MR27 MT31 MU30 NI28 "
+        + "NL18 NO15 OM23 PK24 PL28 PS29 PT25 QA29 RO24 RS22 RU33 SA24 SC31 SD18 SE24 SI19 SK24 SM27 SO23 ST25 "
+        + "SV28 TL23 TN24 TR26 UA29 VA22 VG24 XK20 YE30");
+    
+    private final String errorKey;
+    
+    Validator(String errorKey) {
+        this.errorKey = errorKey;
+    }
+    
+    /**
+     * Message key shown when the input is rejected
+     */
+    public String getErrorKey() {
+        return errorKey;
+    }
+    
+    private static byte[] createIbanLengths(String table) {
+        byte[] lengths = new byte[26 * 26];
+        for (String entry : table.split(" ")) {
+            lengths[(entry.charAt(0) - 'A') * 26 + entry.charAt(1) - 'A'] = Byte.parseByte(entry.substring(2));
+        }
+        return lengths;
+    }
+    
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+    
+    // Only a-z and A-Z, the lower case letters stand for their upper case form
+    private static boolean isAsciiLetter(char c) {
+        return c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z';
+    }
+    
+    // Characters matched by \s
+    private static boolean isRegexWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+    
+    // Characters not matched by . in a regular expression
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+    
+    /**
+     * Value of two digits at a position, -1 if they are not both digits
+     */
+    private static int twoDigits(String s, int pos) {
+        char tens = s.charAt(pos);
+        char ones = s.charAt(pos + 1);
+        if (!isDigit(tens) || !isDigit(ones)) {
+            return -1;
+        }
+        return (tens - '0') * 10 + (ones - '0');
+    }
+}
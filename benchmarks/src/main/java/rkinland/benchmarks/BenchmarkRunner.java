@@ -0,0 +1,48 @@
+package rkinland.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the whole suite (legacy and registry validators, dialog walk, PDF fill, overlays, preview) with the GC profiler,
+ * so every result also shows the allocation rate (gc.alloc.rate, gc.alloc.rate.norm); in ops/s unless -bm or -tu are given
+ * Usage: java -cp benchmarks/target/benchmarks.jar rkinland.benchmarks.BenchmarkRunner [JMH options] [regex ...]
+ */
+public final class BenchmarkRunner {
+    
+    private BenchmarkRunner() {
+    }
+    
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder()
+            .parent(commandLine)
+            .addProfiler(GCProfiler.class);
+        // Options set here win over the parent, so only fill in what the command line leaves open (-bm, -tu)
+        if (commandLine.getBenchModes().isEmpty()) {
+            options.mode(Mode.Throughput);
+        }
+        if (!commandLine.getTimeUnit().hasValue()) {
+            options.timeUnit(TimeUnit.SECONDS);
+        }
+        
+        if (commandLine.getIncludes().isEmpty()) {
+            // Both validator paths, so the run shows the registry against the legacy chain
+            options.include(ValidatorBenchmark.class.getSimpleName())
+                .include(DialogWalkBenchmark.class.getSimpleName())
+                .include(PdfFillBenchmark.class.getSimpleName())
+                .include(OverlayBenchmark.class.getSimpleName())
+                .include(PreviewBenchmark.class.getSimpleName());
+        }
+        
+        new Runner(options.build()).run();
+    }
+}
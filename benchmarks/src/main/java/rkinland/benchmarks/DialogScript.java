@@ -0,0 +1,64 @@
+package rkinland.benchmarks;
+
+import java.util.Locale;
+
+import rkinland.ChatbotState;
+import rkinland.ClaimRecord;
+import rkinland.DialogEngine;
+import rkinland.DialogGraph;
+import rkinland.Messages;
+
+/**
+ * Scripted answers for a complete conversation from WELCOME to ABSCHLUSS_PDF
+ * Uses most branches of the form: secondment, first application, private car, train with
+ * BahnCard, two hotels booked by the traveller, advance payment. Two answers are invalid
+ * on purpose, so the re-ask paths are part of the walk.
+ */
+final class DialogScript {
+    
+    static final String[] ANSWERS = {
+        // Personal data
+        "Landesamt für Besoldung", "Mustermann", "Max", "5", "1", "AZ-4711", "Referat 12", "KS 100", "KT 200",
+        "+49 (30) 1234-5678", "max.mustermann@bund.de", "ja", "Stammbehörde Bonn", "ja", "Hauptstraße 1, 10115 Berlin",
+        "Bonn", "12345678901", "Sparkasse Berlin", "DE89 3704 0044 0532 0130 00", "cobadeffxxx",
+        // Travel data
+        "Fortbildung", "München", "01.02.2024", "07:30", "1", "01.02.2024", "12:15", "01.02.2024", "13:00",
+        "02.02.2024", "16:00", "02.02.2024", "16:30", "02.02.2024", "21:45", "2", "nein", "nein", "2",
+        // Transport: official car, private car, train
+        "1,2,5", "2", "120", "Berlin - Potsdam", "1", "ja", "1", "2", "2", "nein", "89,90", "89,90", "ja",
+        // Accommodation with two hotels
+        "ja", "nein", "ja", "x", "2", "Hotel Eins", "München", "01.02.2024", "02.02.2024", "110,00", "ja",
+        "Hotel Zwei", "Freising", "02.02.2024", "03.02.2024", "95,00", "nein", "ja", "2", "ja", "nein", "ja",
+        "nein", "nein", "nein", "nein", "nein",
+        // Additional information
+        "nein", "nein", "ja", "200,00", "Keine", "ja", "nein", "Berlin", "05.02.2024"
+    };
+    
+    private static final DialogEngine.Listener NO_OUTPUT = message -> { };
+    
+    private DialogScript() {
+    }
+    
+    /**
+     * Run the script on a new engine; the engine is at ABSCHLUSS_PDF afterwards
+     */
+    static DialogEngine run(Messages messages) {
+        DialogEngine engine = new DialogEngine(DialogGraph.standard(), messages, NO_OUTPUT);
+        engine.start();
+        for (String answer : ANSWERS) {
+            engine.process(answer);
+        }
+        return engine;
+    }
+    
+    /**
+     * Form data of the scripted conversation, checked to have reached the final question
+     */
+    static ClaimRecord formData() {
+        DialogEngine engine = run(Messages.forLocale(Locale.GERMAN));
+        if (engine.getCurrentState() != ChatbotState.ABSCHLUSS_PDF) {
+            throw new IllegalStateException("Script ends in " + engine.getCurrentState() + " instead of ABSCHLUSS_PDF");
+        }
+        return engine.getSession().copyClaim();
+    }
+}
@@ -0,0 +1,47 @@
+package rkinland.benchmarks;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import rkinland.ChatbotState;
+import rkinland.DialogEngine;
+import rkinland.Messages;
+
+/**
+ * One complete conversation per operation: all state transitions from WELCOME to ABSCHLUSS_PDF,
+ * including validation and the localized bot messages
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DialogWalkBenchmark {
+    
+    private Messages messages;
+    
+    @Setup
+    public void setup() {
+        messages = Messages.forLocale(Locale.GERMAN);
+        // Fails early if the script no longer matches the dialog
+        DialogScript.formData();
+    }
+    
+    @Benchmark
+    public ChatbotState walkToPdfQuestion() {
+        DialogEngine engine = DialogScript.run(messages);
+        return engine.getCurrentState();
+    }
+}
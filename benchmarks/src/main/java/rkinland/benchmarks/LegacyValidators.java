@@ -0,0 +1,130 @@
+package rkinland.benchmarks;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.regex.Pattern;
+
+/**
+ * Copy of the validators before the Validator registry (Pattern.compile / String.matches per call)
+ * Only kept as the baseline of ValidatorBenchmark.
+ */
+final class LegacyValidators {
+    
+    private LegacyValidators() {
+    }
+    
+    /**
+     * Validate email address
+     */
+    public static boolean validateEmail(String email) {
+        Pattern emailPattern = Pattern.compile("^[A-Za-z0-9+_.-]+@(.+)$");
+        
+        if (!emailPattern.matcher(email).matches() || !email.contains(".") || !email.contains("@")) {
+            return false;
+        }
+        
+        if (email.contains(" ")) {
+            return false;
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Validate phone number
+     */
+    public static boolean validatePhoneNumber(String phone) {
+        Pattern validChars = Pattern.compile("[\\d\\+\\-\\(\\)\\s]*");
+        
+        if (!validChars.matcher(phone).matches()) {
+            return false;
+        }
+        
+        long digitCount = phone.chars().filter(Character::isDigit).count();
+        if (digitCount < 6) {
+            return false;
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Validate IBAN
+     */
+    public static boolean validateIBAN(String iban) {
+        String cleanIban = iban.replace(" ", "").toUpperCase();
+        
+        if (cleanIban.length() < 15 || cleanIban.length() > 34) {
+            return false;
+        }
+        
+        if (!cleanIban.substring(0, 2).matches("[A-Z]{2}") || 
+            !cleanIban.substring(2, 4).matches("\\d{2}")) {
+            return false;
+        }
+        
+        if (!cleanIban.matches("[A-Z0-9]+")) {
+            return false;
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Validate BIC
+     */
+    public static boolean validateBIC(String bic) {
+        String cleanBic = bic.trim().toUpperCase();
+        
+        if (cleanBic.length() != 8 && cleanBic.length() != 11) {
+            return false;
+        }
+        
+        if (!cleanBic.matches("[A-Z0-9]+")) {
+            return false;
+        }
+        
+        if (!cleanBic.substring(0, 4).matches("[A-Z]{4}")) {
+            return false;
+        }
+        
+        if (!cleanBic.substring(4, 6).matches("[A-Z]{2}")) {
+            return false;
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Validate date format (DD.MM.YYYY)
+     */
+    public static boolean validateDate(String date) {
+        try {
+            LocalDate.parse(date, DateTimeFormatter.ofPattern("dd.MM.yyyy"));
+            return true;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Validate time format (HH:MM)
+     */
+    public static boolean validateTime(String time) {
+        try {
+            LocalTime.parse(time, DateTimeFormatter.ofPattern("HH:mm"));
+            return true;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Validate personnel number (exactly 11 digits)
+     */
+    public static boolean validatePersonalNumber(String personalNumber) {
+        return personalNumber.matches("\\d{11}");
+    }
+}
@@ -0,0 +1,195 @@
+package rkinland.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.pdf.BaseFont;
+import com.itextpdf.text.pdf.PdfContentByte;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.PdfStamper;
+
+import rkinland.ClaimField;
+import rkinland.ClaimRecord;
+import rkinland.FormLayout;
+import rkinland.OverlayWriter;
+import rkinland.PdfTemplateCache;
+
+/**
+ * Stamping the overlays of the scripted conversation onto rkinland.pdf, in the former
+ * block structure (one BT/ET per address line, then one block each for the checkbox and
+ * the text overlays) against one text object per page (OverlayWriter)
+ * The setup prints the size of the overlay content of both variants.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OverlayBenchmark {
+    
+    private static final int PAGES = 3;
+    
+    /**
+     * One text to draw, taken from the standard layout
+     */
+    private static final class Draw {
+        final FormLayout.Kind kind;
+        final String text;
+        final float x;
+        final float y;
+        final float fontSize;
+        
+        Draw(FormLayout.Kind kind, String text, float x, float y, float fontSize) {
+            this.kind = kind;
+            this.text = text;
+            this.x = x;
+            this.y = y;
+            this.fontSize = fontSize;
+        }
+    }
+    
+    private PdfTemplateCache template;
+    private BaseFont font;
+    private List<List<Draw>> draws;
+    private ByteArrayOutputStream buffer;
+    
+    @Setup
+    public void setup() throws IOException, DocumentException {
+        template = PdfTemplateCache.forFile(PdfFillBenchmark.findTemplate());
+        font = BaseFont.createFont(BaseFont.HELVETICA, BaseFont.CP1252, BaseFont.NOT_EMBEDDED);
+        draws = collectDraws(DialogScript.formData());
+        buffer = new ByteArrayOutputStream(2 * 1024 * 1024);
+        
+        long templateBytes = contentBytes(template.openReader());
+        long legacyBytes = contentBytes(new PdfReader(stamp(true))) - templateBytes;
+        long singleBytes = contentBytes(new PdfReader(stamp(false))) - templateBytes;
+        System.out.println();
+        System.out.println("Overlay content of pages 1-" + PAGES + " (uncompressed): legacy blocks " + legacyBytes
+            + " bytes, single block " + singleBytes + " bytes");
+    }
+    
+    @Benchmark
+    public int legacyBlocks() throws IOException, DocumentException {
+        return stamp(true).length;
+    }
+    
+    @Benchmark
+    public int singleBlock() throws IOException, DocumentException {
+        return stamp(false).length;
+    }
+    
+    private byte[] stamp(boolean legacy) throws IOException, DocumentException {
+        buffer.reset();
+        PdfReader reader = template.openReader();
+        try {
+            PdfStamper stamper = new PdfStamper(reader, buffer);
+            for (int page = 1; page <= PAGES; page++) {
+                PdfContentByte canvas = stamper.getOverContent(page);
+                if (legacy) {
+                    drawLegacy(canvas, draws.get(page - 1));
+                } else {
+                    OverlayWriter writer = new OverlayWriter(canvas);
+                    for (Draw draw : draws.get(page - 1)) {
+                        writer.showText(draw.text, draw.x, draw.y, font, draw.fontSize);
+                    }
+                    writer.end();
+                }
+            }
+            stamper.close();
+        } finally {
+            reader.close();
+        }
+        return buffer.toByteArray();
+    }
+    
+    /**
+     * Block structure of the former addTextWithPosition, renderCheckboxFields and renderTextOverlays
+     */
+    private void drawLegacy(PdfContentByte canvas, List<Draw> pageDraws) {
+        for (Draw draw : pageDraws) {
+            if (draw.kind == FormLayout.Kind.ADDRESS_OVERLAY) {
+                canvas.beginText();
+                canvas.setFontAndSize(font, draw.fontSize);
+                canvas.setTextMatrix(draw.x, draw.y);
+                canvas.showText(draw.text);
+                canvas.endText();
+            }
+        }
+        for (FormLayout.Kind kind : new FormLayout.Kind[] {FormLayout.Kind.CHECK_OVERLAY, FormLayout.Kind.TEXT_OVERLAY}) {
+            canvas.beginText();
+            canvas.setFontAndSize(font, 10);
+            for (Draw draw : pageDraws) {
+                if (draw.kind == kind) {
+                    canvas.setTextMatrix(draw.x, draw.y);
+                    canvas.showText(draw.text);
+                }
+            }
+            canvas.endText();
+        }
+    }
+    
+    private static List<List<Draw>> collectDraws(ClaimRecord claim) {
+        FormLayout layout = FormLayout.standard();
+        List<List<Draw>> pages = new ArrayList<>();
+        for (int page = 0; page < PAGES; page++) {
+            pages.add(new ArrayList<>());
+        }
+        
+        boolean addressDrawn = false;
+        for (ClaimField field : ClaimField.values()) {
+            FormLayout.FieldDescriptor descriptor = layout.descriptor(field);
+            if (!descriptor.isOverlay() || descriptor.page > PAGES) {
+                continue;
+            }
+            List<Draw> page = pages.get(descriptor.page - 1);
+            String value = claim.get(field);
+            switch (descriptor.kind) {
+                case ADDRESS_OVERLAY:
+                    if (!addressDrawn && claim.isSet(field)) {
+                        for (int i = 0; i < descriptor.lines.size(); i++) {
+                            float y = descriptor.y - i * descriptor.fontSize * FormLayout.ADDRESS_LEADING;
+                            page.add(new Draw(descriptor.kind, descriptor.lines.get(i), descriptor.x, y, descriptor.fontSize));
+                        }
+                        addressDrawn = true;
+                    }
+                    break;
+                case CHECK_OVERLAY:
+                    if (claim.isSet(field)) {
+                        page.add(new Draw(descriptor.kind, "X", descriptor.x, descriptor.y, descriptor.fontSize));
+                    }
+                    break;
+                default:
+                    if (value != null && !value.isEmpty()) {
+                        page.add(new Draw(descriptor.kind, value, descriptor.x, descriptor.y, descriptor.fontSize));
+                    }
+                    break;
+            }
+        }
+        return pages;
+    }
+    
+    private static long contentBytes(PdfReader reader) throws IOException {
+        long bytes = 0;
+        for (int page = 1; page <= PAGES; page++) {
+            bytes += reader.getPageContent(page).length;
+        }
+        reader.close();
+        return bytes;
+    }
+}
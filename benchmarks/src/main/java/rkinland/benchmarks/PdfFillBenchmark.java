@@ -0,0 +1,96 @@
+package rkinland.benchmarks;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.itextpdf.text.DocumentException;
+
+import rkinland.ClaimRecord;
+import rkinland.PdfFormFiller;
+import rkinland.PdfTemplateCache;
+
+/**
+ * PDF generation end to end against rkinland.pdf, with the form data of the scripted conversation
+ * The template is looked up in the working directory and in Chatbot_rkinland(Clean)/, or
+ * given with -Drkinland.template=<file>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PdfFillBenchmark {
+    
+    private PdfFormFiller filler;
+    private ClaimRecord claimData;
+    private ByteArrayOutputStream buffer;
+    private File outputFile;
+    
+    @Setup
+    public void setup() throws IOException {
+        filler = new PdfFormFiller(PdfTemplateCache.forFile(findTemplate()));
+        claimData = DialogScript.formData();
+        buffer = new ByteArrayOutputStream(512 * 1024);
+        outputFile = File.createTempFile("ausgefuelltes_formular", ".pdf");
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        outputFile.delete();
+    }
+    
+    /**
+     * Fill into memory: template copy, fields, overlays and PDF serialization
+     */
+    @Benchmark
+    public int fillToBytes() throws IOException, DocumentException {
+        buffer.reset();
+        filler.fill(claimData, buffer, PdfFormFiller.SILENT);
+        return buffer.size();
+    }
+    
+    /**
+     * Fill into a file the way the GUI writes ausgefuelltes_formular.pdf
+     */
+    @Benchmark
+    public long fillToFile() throws IOException, DocumentException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(outputFile))) {
+            filler.fill(claimData, out, PdfFormFiller.SILENT);
+        }
+        return outputFile.length();
+    }
+    
+    static File findTemplate() {
+        String configured = System.getProperty("rkinland.template");
+        if (configured != null) {
+            return new File(configured);
+        }
+        for (String candidate : new String[] {"rkinland.pdf", "Chatbot_rkinland(Clean)/rkinland.pdf", "../Chatbot_rkinland(Clean)/rkinland.pdf"}) {
+            File file = new File(candidate);
+            if (Files.isRegularFile(file.toPath())) {
+                return file;
+            }
+        }
+        throw new IllegalStateException("rkinland.pdf not found, set -Drkinland.template=<file>");
+    }
+}
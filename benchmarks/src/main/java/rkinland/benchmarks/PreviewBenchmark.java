@@ -0,0 +1,64 @@
+package rkinland.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import rkinland.ClaimRecord;
+import rkinland.PdfPreview;
+import rkinland.PdfTemplateCache;
+
+/**
+ * Preview update after an answer, with the form data of the scripted conversation
+ * The template is rendered once in the setup; every invocation changes the name
+ * (page 1) or nothing, which is what the GUI does after most answers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PreviewBenchmark {
+    
+    private PdfPreview preview;
+    private ClaimRecord claimData;
+    private ClaimRecord changedName;
+    private boolean changed;
+    
+    @Setup
+    public void setup() throws IOException {
+        preview = new PdfPreview(PdfTemplateCache.forFile(PdfFillBenchmark.findTemplate()));
+        claimData = DialogScript.formData();
+        changedName = claimData.copy();
+        changedName.asMap().put("name", "Musterfrau, Erika");
+        preview.update(claimData);
+    }
+    
+    /**
+     * One answer that changes a value on page 1: that page is drawn again
+     */
+    @Benchmark
+    public int updateOnePage() throws IOException {
+        changed = !changed;
+        return preview.update(changed ? changedName : claimData).length;
+    }
+    
+    /**
+     * An answer that changes nothing on the form (e.g. a rejected one): only the comparison
+     */
+    @Benchmark
+    public int updateUnchanged() throws IOException {
+        return preview.update(claimData).length;
+    }
+}
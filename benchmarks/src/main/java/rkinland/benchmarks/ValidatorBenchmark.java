@@ -0,0 +1,93 @@
+package rkinland.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import rkinland.Validator;
+
+/**
+ * Cost per input of the former validators (LegacyValidators) against the Validator registry
+ * Each invocation checks a mix of valid and invalid answers of one kind.
+ * Run with -prof gc to compare the allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidatorBenchmark {
+    
+    @Param({"EMAIL", "PHONE", "IBAN", "BIC", "DATE", "TIME", "PERSONAL_NUMBER"})
+    public Validator validator;
+    
+    private Predicate<String> legacy;
+    private String[] inputs;
+    
+    @Setup
+    public void setup() {
+        switch (validator) {
+            case EMAIL:
+                legacy = LegacyValidators::validateEmail;
+                inputs = new String[] {"max.mustermann@bund.de", "max mustermann@bund.de", "max@bund", "m+x@sub.example.org"};
+                break;
+            case PHONE:
+                legacy = LegacyValidators::validatePhoneNumber;
+                inputs = new String[] {"+49 (30) 1234-5678", "030 12345", "0301234567", "tel. 12345678"};
+                break;
+            case IBAN:
+                legacy = LegacyValidators::validateIBAN;
+                inputs = new String[] {"DE89 3704 0044 0532 0130 00", "de89370400440532013000", "DE8937040044", "D189370400440532013000"};
+                break;
+            case BIC:
+                legacy = LegacyValidators::validateBIC;
+                inputs = new String[] {"COBADEFFXXX", " markdef1100 ", "COBADE", "CO1ADEFF"};
+                break;
+            case DATE:
+                legacy = LegacyValidators::validateDate;
+                inputs = new String[] {"01.02.2024", "31.12.2025", "32.01.2024", "1.2.2024"};
+                break;
+            case TIME:
+                legacy = LegacyValidators::validateTime;
+                inputs = new String[] {"08:00", "23:59", "24:00", "8:00"};
+                break;
+            default:
+                legacy = LegacyValidators::validatePersonalNumber;
+                inputs = new String[] {"12345678901", "1234567890", "1234567890a", "00000000000"};
+                break;
+        }
+        
+        for (String input : inputs) {
+            if (legacy.test(input) != validator.test(input)) {
+                throw new IllegalStateException(validator + " differs from the legacy check for " + input);
+            }
+        }
+    }
+    
+    @Benchmark
+    public void legacy(Blackhole blackhole) {
+        for (String input : inputs) {
+            blackhole.consume(legacy.test(input));
+        }
+    }
+    
+    @Benchmark
+    public void registry(Blackhole blackhole) {
+        for (String input : inputs) {
+            blackhole.consume(validator.test(input));
+        }
+    }
+}